@@ -11,6 +11,7 @@ import javax.sound.sampled.AudioFormat;
 
 import exmoplay.access.AudioBuffer;
 import exmoplay.engine.actorframework.Actor;
+import exmoplay.engine.actorframework.Scheduler;
 import exmoplay.engine.audio.AudioProvider;
 import exmoplay.engine.audio.AudioProvider.AudioState;
 import exmoplay.engine.audio.JoalAudioProvider;
@@ -24,6 +25,9 @@ public class AudioRenderer extends Actor {
     private static final boolean TRACE = false;
 
     private static final double MIN_SPEED = 0.25;
+    // upper bound for waiting on the audio provider (in case its estimate is off)
+    private static final long MAX_WAKE_UP_MILLIS = 50;
+    private static final long MIN_WAKE_UP_MILLIS = 1;
 
     private AudioFormat audioFormat;
     private AudioProvider audioProvider;
@@ -37,7 +41,11 @@ public class AudioRenderer extends Actor {
     private final Actor syncTarget;
 
     public AudioRenderer(Actor errorHandler, AudioFormat audioFormat, Actor syncTarget) {
-        super(errorHandler, 50000000, Priority.MAX);
+        this(errorHandler, audioFormat, syncTarget, Scheduler.getDefault());
+    }
+
+    public AudioRenderer(Actor errorHandler, AudioFormat audioFormat, Actor syncTarget, Scheduler scheduler) {
+        super(errorHandler, -1, Priority.MAX, scheduler);
         this.audioFormat = audioFormat;
         this.syncTarget = syncTarget;
     }
@@ -113,10 +121,29 @@ public class AudioRenderer extends Actor {
         //System.out.println("AudioRenderer: started writing to buffer");
         fillAudioBuffer();
         //System.out.println("AudioRenderer: finished writing to buffer");
+        scheduleNextBufferFill();
 
         super.idle();
     }
 
+    /**
+     * If frames are waiting for buffer space, wakes up when the audio provider is expected to have space again.
+     * Otherwise waits for the next message only.
+     */
+    private void scheduleNextBufferFill() {
+        if (frameQueue.isEmpty()) {
+            cancelWakeUp();
+            return;
+        }
+        long millis = audioProvider.getMillisUntilWritable();
+        if (millis == -1) {
+            cancelWakeUp();
+        } else {
+            millis = Math.min(MAX_WAKE_UP_MILLIS, Math.max(MIN_WAKE_UP_MILLIS, millis));
+            scheduleWakeUp(System.nanoTime() + millis * 1000000L);
+        }
+    }
+
     private void checkBufferSize(byte[] frameBuffer, double absSpeed) {
         if (speedCorrectedBuffer == null || speedCorrectedBuffer.length < frameBuffer.length / absSpeed) {
             // calculating with the min possible speed, or lower if actual is lower
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine;
+
+import exmoplay.access.MediaAnalysis;
+import exmoplay.access.MediaInfo;
+import exmoplay.engine.actorframework.Actor;
+import exmoplay.engine.actorframework.Scheduler;
+import exmoplay.engine.messages.MediaInfoUpdate;
+
+/**
+ * Goes on with the analysis of a video that is already being played (see {@link MediaPlayer#openVideo(java.io.File)})
+ * and sends the media info of the analyzed part to the controller from time to time, so that it can play and seek
+ * further.
+ *
+ * @author agent
+ */
+public class BackgroundAnalyzer extends Actor {
+    private static final boolean DEBUG = false;
+
+    private static final long UPDATE_INTERVAL_MILLIS = 1000; // at least
+    // a media info of the analyzed part compresses all frames analyzed so far, so the updates get rarer as the video
+    // gets longer: the time between them is at least this many times the time the last one took
+    private static final int UPDATE_COST_FACTOR = 20;
+
+    // sent to itself for analyzing the next packets (so that it can be stopped in between)
+    private static class AnalyzeNext {
+    }
+
+    private final MediaAnalysis analysis;
+    private final Actor controller;
+    private long lastUpdateMillis;
+    private long updateIntervalMillis = UPDATE_INTERVAL_MILLIS;
+    private long startMillis;
+
+    public BackgroundAnalyzer(Actor errorHandler, MediaAnalysis analysis, Actor controller, Scheduler scheduler) {
+        super(errorHandler, -1, Priority.MIN, scheduler);
+        this.analysis = analysis;
+        this.controller = controller;
+    }
+
+    @Override
+    protected void init() throws Exception {
+        startMillis = System.currentTimeMillis();
+        lastUpdateMillis = startMillis;
+        send(new AnalyzeNext());
+    }
+
+    @Override
+    protected void destruct() {
+        // if stopped before it is done (e.g. because another video was opened)
+        analysis.close();
+    }
+
+    @Override
+    protected void act(Object message) {
+        if (message instanceof AnalyzeNext) {
+            analyzeNext();
+        } else {
+            throw new IllegalStateException("received unknown message");
+        }
+    }
+
+    private void analyzeNext() {
+        analysis.analyzeNext();
+        long now = System.currentTimeMillis();
+        if (analysis.isDone()) {
+            controller.send(new MediaInfoUpdate(analysis.getFile(), analysis.getMediaInfo()));
+            if (DEBUG) {
+                System.out.println("DEBUG: analyzed " + analysis.getFile() + " in the background in "
+                        + (now - startMillis) + "ms");
+            }
+            return;
+        }
+        if (now - lastUpdateMillis >= updateIntervalMillis) {
+            MediaInfo mediaInfo = analysis.getMediaInfo();
+            if (mediaInfo != null)
+                controller.send(new MediaInfoUpdate(analysis.getFile(), mediaInfo));
+            lastUpdateMillis = System.currentTimeMillis();
+            updateIntervalMillis = Math.max(UPDATE_INTERVAL_MILLIS, (lastUpdateMillis - now) * UPDATE_COST_FACTOR);
+            if (DEBUG) {
+                System.out.println("DEBUG: media info of " + analysis.getAnalyzedFrames() + " frames created in "
+                        + (lastUpdateMillis - now) + "ms, next update in " + updateIntervalMillis + "ms");
+            }
+        }
+        send(new AnalyzeNext());
+    }
+}
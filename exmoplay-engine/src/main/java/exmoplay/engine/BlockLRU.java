@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine;
+
+import exmoplay.engine.messages.CacheBlock;
+
+/**
+ * The unused cache blocks ordered from least to most recently used. The list is intrusive (linked through the blocks
+ * themselves), so all operations are O(1) and do not allocate.
+ * 
+ * @author agent
+ */
+final class BlockLRU {
+
+    private CacheBlock first = null;
+    private CacheBlock last = null;
+    private int size = 0;
+
+    /**
+     * Adds the block as the most recently used one.
+     */
+    void addLast(CacheBlock block) {
+        if (contains(block))
+            throw new IllegalStateException("cache block " + block.index + " is already in the LRU list");
+        block.lruPrev = last;
+        block.lruNext = null;
+        if (last == null)
+            first = block;
+        else
+            last.lruNext = block;
+        last = block;
+        size++;
+    }
+
+    /**
+     * Adds the block as the least recently used one (so it is reused first).
+     */
+    void addFirst(CacheBlock block) {
+        if (contains(block))
+            throw new IllegalStateException("cache block " + block.index + " is already in the LRU list");
+        block.lruPrev = null;
+        block.lruNext = first;
+        if (first == null)
+            last = block;
+        else
+            first.lruPrev = block;
+        first = block;
+        size++;
+    }
+
+    void remove(CacheBlock block) {
+        if (!contains(block))
+            throw new IllegalStateException("cache block " + block.index + " is not in the LRU list");
+        if (block.lruPrev == null)
+            first = block.lruNext;
+        else
+            block.lruPrev.lruNext = block.lruNext;
+        if (block.lruNext == null)
+            last = block.lruPrev;
+        else
+            block.lruNext.lruPrev = block.lruPrev;
+        block.lruPrev = null;
+        block.lruNext = null;
+        size--;
+    }
+
+    /**
+     * @return the least recently used block (or null if empty)
+     */
+    CacheBlock peekFirst() {
+        return first;
+    }
+
+    /**
+     * Removes and returns the least recently used block (or null if empty).
+     */
+    CacheBlock pollFirst() {
+        CacheBlock block = first;
+        if (block != null)
+            remove(block);
+        return block;
+    }
+
+    boolean contains(CacheBlock block) {
+        return block.lruPrev != null || first == block;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+}
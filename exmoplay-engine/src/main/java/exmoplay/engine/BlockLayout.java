@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine;
+
+import java.util.Arrays;
+
+/**
+ * Divides the frames of a video into the blocks of the frame cache. If aligned to the key frames, a block never spans
+ * two GOPs, so a fetch only decodes frames of the GOP it belongs to (GOPs longer than the maximum block length are
+ * split into several blocks).
+ *
+ * @author agent
+ */
+public final class BlockLayout {
+
+    private final long[] gopStarts; // ascending, the first is always 0
+    private final int maxBlockLength;
+
+    private BlockLayout(long[] gopStarts, int maxBlockLength) {
+        if (maxBlockLength < 1)
+            throw new IllegalArgumentException("block length must be at least 1: " + maxBlockLength);
+        this.gopStarts = gopStarts;
+        this.maxBlockLength = maxBlockLength;
+    }
+
+    /**
+     * @return a layout of blocks with the same length (ignoring the key frames)
+     */
+    public static BlockLayout fixed(int blockLength) {
+        return new BlockLayout(new long[] { 0 }, blockLength);
+    }
+
+    /**
+     * @param keyFrameNumbers the frame numbers of the key frames in ascending order
+     * @return a layout where each block starts at a key frame or a multiple of the maximum block length after it
+     */
+    public static BlockLayout keyFrameAligned(long[] keyFrameNumbers, int maxBlockLength) {
+        long[] starts = new long[keyFrameNumbers.length + 1];
+        int n = 0;
+        // frames before the first key frame are treated like a GOP of their own
+        starts[n++] = 0;
+        for (long k : keyFrameNumbers) {
+            if (k > starts[n - 1])
+                starts[n++] = k;
+        }
+        return new BlockLayout(Arrays.copyOf(starts, n), maxBlockLength);
+    }
+
+    /**
+     * @return the index of the GOP containing the frame (always 0 for fixed layouts)
+     */
+    public int getGopIndex(long seqNum) {
+        int i = Arrays.binarySearch(gopStarts, seqNum);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * @return the seq num of the first frame of the block containing the given frame
+     */
+    public long getBaseSeqNum(long seqNum) {
+        if (seqNum < 0)
+            throw new IllegalArgumentException("invalid seq num: " + seqNum);
+        int gop = getGopIndex(seqNum);
+        long start = gopStarts[gop];
+        long offset = seqNum - start;
+        if (gop == gopStarts.length - 1)
+            return start + offset / maxBlockLength * maxBlockLength;
+        long gopLength = gopStarts[gop + 1] - start;
+        long nBlocks = getNumberOfBlocks(gopLength);
+        // the last block j with blockStart(j) <= offset
+        return start + blockStart(offset * nBlocks / gopLength, gopLength, nBlocks);
+    }
+
+    public boolean isBaseSeqNum(long seqNum) {
+        return seqNum >= 0 && getBaseSeqNum(seqNum) == seqNum;
+    }
+
+    /**
+     * @return the number of frames in the block starting at the given base seq num
+     */
+    public int getLength(long baseSeqNum) {
+        if (!isBaseSeqNum(baseSeqNum))
+            throw new IllegalArgumentException("not a base seq num: " + baseSeqNum);
+        int gop = getGopIndex(baseSeqNum);
+        long start = gopStarts[gop];
+        if (gop == gopStarts.length - 1)
+            return maxBlockLength;
+        long offset = baseSeqNum - start;
+        long gopLength = gopStarts[gop + 1] - start;
+        long nBlocks = getNumberOfBlocks(gopLength);
+        long j = offset * nBlocks / gopLength;
+        return (int) (blockStart(j + 1, gopLength, nBlocks) - offset);
+    }
+
+    private long getNumberOfBlocks(long gopLength) {
+        return (gopLength + maxBlockLength - 1) / maxBlockLength;
+    }
+
+    /**
+     * Splits the GOP evenly (a GOP of 25 frames into blocks of 7, 6, 6 and 6 frames instead of 8, 8, 8 and 1), because
+     * every block has to decode the frames of the GOP before it. The last GOP has no known end and is split into blocks
+     * of the maximum length.
+     *
+     * @return the offset of block j in the GOP (the GOP length for j = nBlocks)
+     */
+    private static long blockStart(long j, long gopLength, long nBlocks) {
+        return (j * gopLength + nBlocks - 1) / nBlocks;
+    }
+
+    public int getMaxBlockLength() {
+        return maxBlockLength;
+    }
+}
@@ -4,21 +4,33 @@
  */
 package exmoplay.engine;
 
+import java.awt.Dimension;
+import java.io.File;
 import java.util.Comparator;
 import java.util.PriorityQueue;
 
 import exmoplay.access.VideoFormat;
 import exmoplay.engine.actorframework.Actor;
 import exmoplay.engine.actorframework.ObjectReceiver;
+import exmoplay.engine.actorframework.Scheduler;
 import exmoplay.engine.messages.AudioSyncEvent;
+import exmoplay.engine.messages.CacheInfo;
+import exmoplay.engine.messages.CacheInfoRequest;
 import exmoplay.engine.messages.CachedFrame;
 import exmoplay.engine.messages.ControlCommand;
 import exmoplay.engine.messages.ControlCommand.Command;
 import exmoplay.engine.messages.FrameRequest;
+import exmoplay.engine.messages.KeyFrameRequest;
 import exmoplay.engine.messages.MediaInfoRequest;
 import exmoplay.engine.messages.MediaInfoResponse;
+import exmoplay.engine.messages.MediaInfoUpdate;
 import exmoplay.engine.messages.NewVideo;
 import exmoplay.engine.messages.PositionUpdate;
+import exmoplay.engine.messages.SetBlockLayout;
+import exmoplay.engine.messages.SetCacheBudget;
+import exmoplay.engine.messages.SetOutputSize;
+import exmoplay.engine.messages.ThumbnailRequest;
+import exmoplay.engine.messages.ThumbnailResponse;
 import exmoplay.engine.messages.SetPosition;
 import exmoplay.engine.messages.SetSpeed;
 import exmoplay.engine.messages.StateUpdate;
@@ -35,6 +47,8 @@ public class Controller extends Actor {
     private static final int SYNC_OFFSET = 0; //700; //250; TODO find out why this magic constant
     private static final double MIN_VALID_SPEED = 1.0 / 40.0;
     private static final double ANIMATION_SPEED = 2.0;
+    private static final long MIN_WAKE_UP_MILLIS = 1;
+    private static final int MAX_FRAME_FETCHERS = 4; // each one opens the video and has its own decoders
 
     public static enum State {
         STOPPED(false),
@@ -49,14 +63,18 @@ public class Controller extends Actor {
     }
 
     private Actor errorHandler;
-    private FrameFetcher frameFetcher;
+    private FrameFetcher[] frameFetchers;
     private FrameCache frameCache;
+    private ThumbnailCache thumbnailCache;
     private AudioRenderer audioRenderer;
     private final VideoRenderer videoRenderer;
 
     // neutral parts (only depending on video)
+    private File videoFile;
     private VideoFormat videoFormat;
     private long duration = -1;
+    private long cacheMaxBytes = FrameCache.DEFAULT_CACHE_MAX_BYTES;
+    private Dimension maxOutputSize = null; // size the frames are shown in (null for the size of the video)
 
     private Engine engine = new Engine();
 
@@ -64,6 +82,7 @@ public class Controller extends Actor {
         boolean running = false;
         long timerMin = -1;
         long timerMax = -1;
+        boolean timerMaxAtEnd = false; // grows with the duration (while the video is still being analyzed)
         long startFrameSeqNum = -1; // dependent on timerMin
         long endFrameSeqNum = -1; // dependent on timerMax
         double playerSpeed = 1.0;
@@ -87,6 +106,7 @@ public class Controller extends Actor {
             } else {
                 timerMax = value;
             }
+            timerMaxAtEnd = value == null;
             endFrameSeqNum = calculateSeqNum(timerMax);
         }
 
@@ -108,6 +128,7 @@ public class Controller extends Actor {
             running = pc.running;
             timerMin = pc.timerMin;
             timerMax = pc.timerMax;
+            timerMaxAtEnd = pc.timerMaxAtEnd;
             startFrameSeqNum = pc.startFrameSeqNum;
             endFrameSeqNum = pc.endFrameSeqNum;
             playerSpeed = pc.playerSpeed;
@@ -123,10 +144,25 @@ public class Controller extends Actor {
     private State state;
 
     public Controller(Actor errorHandler) {
-        super(errorHandler, 10000000, Priority.MAX);
-        this.errorHandler = errorHandler;
+        this(errorHandler, Scheduler.getDefault());
+    }
 
-        videoRenderer = new VideoRenderer(errorHandler);
+    /**
+     * @param scheduler the scheduler on which the controller and all the actors it creates are run
+     */
+    public Controller(Actor errorHandler, Scheduler scheduler) {
+        super(errorHandler, -1, Priority.MAX, scheduler);
+        this.errorHandler = errorHandler;
+        // user control overtakes frames in the mailbox (late frames are dropped anyway), NewVideo and MediaInfoRequest
+        // have to stay in order with it (e.g. a START must not overtake the NewVideo it refers to), as well as the
+        // FrameRequests of clients (one sent before a NewVideo must not be answered from the new video). The other
+        // messages come from other actors and do not depend on the order: frames from before a seek are dropped by seq
+        // num, a START sync while preparing takes the latest position and updates of other files are ignored.
+        prioritize(NewVideo.class, ControlCommand.class, SetPosition.class, SetSpeed.class, StatusRequest.class,
+                MediaInfoRequest.class, FrameRequest.class, SetCacheBudget.class, CacheInfoRequest.class,
+                SetOutputSize.class, ThumbnailRequest.class);
+
+        videoRenderer = new VideoRenderer(errorHandler, this, scheduler);
         videoRenderer.start();
     }
 
@@ -149,20 +185,46 @@ public class Controller extends Actor {
             handleStatusRequest((StatusRequest) message);
         } else if (message instanceof MediaInfoRequest) {
             // has to be here, otherwise it would be handled by the old frame fetcher
-            frameFetcher.send(message);
+            frameFetchers[0].send(message);
         } else if (message instanceof FrameRequest) {
             frameCache.send(message);
+        } else if (message instanceof SetCacheBudget) {
+            // remembered for the frame caches of later videos
+            cacheMaxBytes = ((SetCacheBudget) message).maxBytes;
+            if (frameCache != null)
+                frameCache.send(message);
+        } else if (message instanceof CacheInfoRequest) {
+            if (frameCache != null)
+                frameCache.send(message);
+            else
+                ((CacheInfoRequest) message).responseTo.send(new CacheInfo(cacheMaxBytes, 0, 0, -1, 0));
+        } else if (message instanceof ThumbnailRequest) {
+            if (thumbnailCache != null)
+                thumbnailCache.send(message);
+            else
+                ((ThumbnailRequest) message).responseTo.send(new ThumbnailResponse(null, -1));
+        } else if (message instanceof SetOutputSize) {
+            // remembered for the frame caches of later videos
+            maxOutputSize = ((SetOutputSize) message).maxSize;
+            if (frameCache != null)
+                frameCache.send(message);
+        } else if (message instanceof MediaInfoUpdate) {
+            handleMediaInfoUpdate((MediaInfoUpdate) message);
         } else {
             throw new IllegalStateException("unknown type of message: " + message.getClass());
         }
+        engine.scheduleNextUpdate();
     }
 
     private void loadVideo(NewVideo message) {
-        if (frameFetcher != null) {
+        if (frameFetchers != null) {
             engine.reset();
 
             frameCache.stop();
-            frameFetcher.stopAndWait(); // TODO rather try to see if it is possible to keep the frame fetcher actor and just send it a message to change
+            thumbnailCache.stop();
+            for (FrameFetcher frameFetcher : frameFetchers) {
+                frameFetcher.stopAndWait(); // TODO rather try to see if it is possible to keep the frame fetcher actor and just send it a message to change
+            }
 
             engine.stop();
 
@@ -170,18 +232,35 @@ public class Controller extends Actor {
                 audioRenderer.stop();
         }
 
-        frameFetcher = new FrameFetcher(errorHandler, message.videoFile, message.mediaInfo);
-        frameCache = new FrameCache(errorHandler, frameFetcher);
+        videoFile = message.videoFile;
+        // each fetcher has its own decoder, so that GOPs can be decoded in parallel
+        frameFetchers = new FrameFetcher[Math.min(MAX_FRAME_FETCHERS, Runtime.getRuntime().availableProcessors())];
+        for (int i = 0; i < frameFetchers.length; i++) {
+            frameFetchers[i] = new FrameFetcher(errorHandler, message.videoFile, message.mediaInfo, getScheduler());
+        }
+        if (message.cacheMaxBytes != null)
+            cacheMaxBytes = message.cacheMaxBytes;
+        BlockLayout layout = BlockLayout.keyFrameAligned(message.mediaInfo.getKeyFrameNumbers(),
+                FrameCache.BLOCK_LENGTH);
+        frameCache = new FrameCache(errorHandler, frameFetchers, layout, cacheMaxBytes, getScheduler());
 
-        frameFetcher.start();
+        for (FrameFetcher frameFetcher : frameFetchers) {
+            frameFetcher.start();
+        }
         frameCache.start();
+        if (maxOutputSize != null)
+            frameCache.send(new SetOutputSize(maxOutputSize)); // before any frames are requested
+
+        // read in the background (with a decoder of its own)
+        thumbnailCache = new ThumbnailCache(errorHandler, message.videoFile, message.mediaInfo, getScheduler());
+        thumbnailCache.start();
 
         ObjectReceiver receiver = new ObjectReceiver();
-        frameFetcher.send(new MediaInfoRequest(receiver));
+        frameFetchers[0].send(new MediaInfoRequest(receiver));
         final MediaInfoResponse mir = (MediaInfoResponse) receiver.waitForMessage();
 
         if (mir.audioFormat != null) {
-            audioRenderer = new AudioRenderer(errorHandler, mir.audioFormat, this);
+            audioRenderer = new AudioRenderer(errorHandler, mir.audioFormat, this, getScheduler());
             audioRenderer.start();
         }
         videoFormat = mir.videoFormat;
@@ -204,6 +283,27 @@ public class Controller extends Actor {
         engine.setPosition(timerInitial);
     }
 
+    /**
+     * Playing and seeking extends to the newly analyzed part of the video (the frame rate stays the one of the first
+     * media info).
+     */
+    private void handleMediaInfoUpdate(MediaInfoUpdate message) {
+        if (!message.mediaFile.equals(videoFile))
+            return; // still from the video opened before
+        for (FrameFetcher frameFetcher : frameFetchers) {
+            frameFetcher.send(message);
+        }
+        frameCache.send(new SetBlockLayout(BlockLayout.keyFrameAligned(message.mediaInfo.getKeyFrameNumbers(),
+                FrameCache.BLOCK_LENGTH)));
+        thumbnailCache.send(message);
+
+        duration = (long) (message.mediaInfo.numberOfVideoFrames / videoFormat.getFrameRate() * 1000000L) / 1000L;
+        if (controlCons.timerMaxAtEnd) {
+            controlCons.setTimerMax(null);
+            engine.extendTimerMax(controlCons);
+        }
+    }
+
     private void handleAudioSyncEvent(AudioSyncEvent message) {
         switch (message.type) {
         case START:
@@ -241,6 +341,8 @@ public class Controller extends Actor {
     private void handleSetPosition(SetPosition message) {
         if (message.animated && !controlCons.running) {
             engine.setPositionAnimated(message.position);
+        } else if (message.scrubbing && !controlCons.running && !engine.isRunning()) {
+            engine.scrubTo(message.position);
         } else {
             if (controlCons.running == false && engine.isRunning()) {
                 // if setting position while animation is still running, it needs to be stopped first
@@ -259,19 +361,19 @@ public class Controller extends Actor {
     private void handleStatusRequest(StatusRequest message) {
         Long position = null;
         if (message.position != null) {
-            position = message.position._;
+            position = message.position.value;
         }
         if (message.positionMin != null) {
-            controlCons.setTimerMin(message.positionMin._);
+            controlCons.setTimerMin(message.positionMin.value);
         }
         if (message.positionMax != null) {
-            controlCons.setTimerMax(message.positionMax._);
+            controlCons.setTimerMax(message.positionMax.value);
         }
         if (message.speed != null) {
-            controlCons.setSpeed(message.speed._);
+            controlCons.setSpeed(message.speed.value);
         }
         if (message.mute != null) {
-            controlCons.mute = message.mute._;
+            controlCons.mute = message.mute.value;
         }
         engine.setPlayConstraints(controlCons, position);
         if (message.responseTo != null) {
@@ -296,6 +398,7 @@ public class Controller extends Actor {
         // prefetching TODO (+ initial prefetching on position request & initialization, -> delayed start after the minimum has arrived, sent to sound and sound responded it started)
 
         engine.updateFrameInScreenIfTimeHasCome();
+        engine.scheduleNextUpdate();
     }
 
     /**
@@ -319,6 +422,7 @@ public class Controller extends Actor {
         private long nextSeqNumExpected = -1;
         private long startingTimerPos = 0;
         private Long anotherPosSetDuringPreparing = null;
+        private boolean scrubbing = false; // key frames are shown until the exact position is set again
 
         private PlayConstraints engineCons = new PlayConstraints();
 
@@ -327,6 +431,7 @@ public class Controller extends Actor {
         public void start() {
             // TODO maybe has to wait until frames are available (cachedFrames non empty)
             if (!timer.isRunning()) {
+                scrubbing = false;
                 setState(State.PREPARING);
                 startingTimerPos = timer.getPosition();
                 long currentSeqNum = calculateSeqNum(startingTimerPos);
@@ -384,6 +489,7 @@ public class Controller extends Actor {
         }
 
         public void setPosition(long newPosition) {
+            scrubbing = false;
             startingTimerPos = newPosition;
             long positionSeqNum = calculateSeqNum(startingTimerPos);
             //System.out.println("positionSeqNum: " + positionSeqNum + " derived from " + message.position);
@@ -409,10 +515,35 @@ public class Controller extends Actor {
             sendUpdate(new PositionUpdate(startingTimerPos, controlCons.timerMin, controlCons.timerMax));
         }
 
+        /**
+         * Shows the key frame before the position (or the exact frame if it is cached), which is much faster in long
+         * GOPs. Only while stopped.
+         */
+        public void scrubTo(long newPosition) {
+            scrubbing = true;
+            startingTimerPos = newPosition;
+            frameCache.send(new KeyFrameRequest(calculateSeqNum(newPosition), USAGE_COUNT, Controller.this));
+
+            timer.setPosition(startingTimerPos);
+            sendUpdate(new PositionUpdate(startingTimerPos, controlCons.timerMin, controlCons.timerMax));
+        }
+
+        /**
+         * Moves the end along with the duration without restarting (unless it is the end of an animation).
+         */
+        public void extendTimerMax(PlayConstraints cons) {
+            if (engineCons.timerMaxAtEnd) {
+                engineCons.timerMax = cons.timerMax;
+                engineCons.endFrameSeqNum = cons.endFrameSeqNum;
+            }
+            sendUpdate(new PositionUpdate(getPosition(), controlCons.timerMin, controlCons.timerMax));
+        }
+
         private void sendFetchRequest(long seqNum, boolean onlyIfFreeResources) {
             if (seqNum < 0)
                 throw new IllegalArgumentException("Request for invalid seq num: " + seqNum);
-            frameCache.send(new FrameRequest(seqNum, USAGE_COUNT, onlyIfFreeResources, Controller.this));
+            boolean backward = timer.getSpeedDirection() < 0;
+            frameCache.send(new FrameRequest(seqNum, USAGE_COUNT, onlyIfFreeResources, backward, Controller.this));
         }
 
         public void setPositionAnimated(long newPosition) {
@@ -503,6 +634,11 @@ public class Controller extends Actor {
             if (TRACE) {
                 System.out.println("TRACE: " + frame.seqNum + " received in controller");
             }
+            if (frame.keyFrameOnly && !scrubbing) {
+                // too late, the exact frame was requested (or playback started) in the meantime
+                recycle(frame, USAGE_COUNT);
+                return;
+            }
             if (state == State.PREPARING || state == State.PLAYING) {
                 if (timer.speed > 0.0
                         && (frame.seqNum < nextSeqNumExpected || frame.seqNum > nextSeqNumExpected
@@ -604,6 +740,29 @@ public class Controller extends Actor {
             }
         }
 
+        /**
+         * Schedules the wake-up of the controller for the moment the next queued frame is due (or the end of the range
+         * is reached if no frame is queued). Nothing is scheduled while the timer is not running, so a paused player
+         * does not wake up at all.
+         */
+        public void scheduleNextUpdate() {
+            if (!timer.isRunning()) {
+                cancelWakeUp();
+                return;
+            }
+            long seqNum;
+            if (queuedFrames.isEmpty()) {
+                // arriving frames wake up the controller anyway
+                seqNum = timer.isPlayingForward() ? engineCons.endFrameSeqNum : engineCons.startFrameSeqNum;
+            } else {
+                seqNum = queuedFrames.peek().seqNum;
+            }
+            // first position belonging to the seq num (last one when playing backwards)
+            long position = timer.isPlayingForward() ? calculatePosition(seqNum) : calculatePosition(seqNum + 1) - 1;
+            long millis = Math.max(MIN_WAKE_UP_MILLIS, timer.getTimeOfPosition(position) - Timer.now());
+            scheduleWakeUp(System.nanoTime() + millis * 1000000L);
+        }
+
         public void updateFrameInScreenIfTimeHasCome() {
 
             // timing rendering of video frames
@@ -674,10 +833,18 @@ public class Controller extends Actor {
         return (long) Math.floor(position * videoFormat.getFrameRate() / 1000);
     }
 
+    /**
+     * @return the first position that has the given seq num (inverse of calculateSeqNum)
+     */
+    private long calculatePosition(long seqNum) {
+        return (long) Math.ceil(seqNum * 1000 / videoFormat.getFrameRate());
+    }
+
     /**
      * This timer knows two states: running or not running. If it is running the current position is based on
      * <code>zeroPoint</code> which marks the point in time when playback started (if it would not have ever been
-     * interrupted inbetween). If it is not running the current position is stored in <code>pos</code>.
+     * interrupted inbetween). If it is not running the current position is stored in <code>pos</code>. Points in time
+     * are taken from a monotonic clock (see {@link #now()}), so they can be converted to wake-up deadlines.
      */
     private static class Timer {
         private boolean running = false;
@@ -685,13 +852,17 @@ public class Controller extends Actor {
         private long pos = 0;
         private double speed = 1.0;
 
+        static long now() {
+            return System.nanoTime() / 1000000L;
+        }
+
         private long getPositionWhileRunning() {
-            long now = System.currentTimeMillis();
+            long now = now();
             return Math.round((now - zeroPoint) * speed);
         }
 
         private long getZeroPoint(long pos) {
-            long now = System.currentTimeMillis();
+            long now = now();
             return now - Math.round(pos / speed);
         }
 
@@ -731,6 +902,15 @@ public class Controller extends Actor {
             return running;
         }
 
+        /**
+         * @return the point in time (see {@link #now()}) at which the running timer reaches the given position
+         */
+        public long getTimeOfPosition(long position) {
+            if (!running)
+                throw new IllegalStateException("timer is not running");
+            return zeroPoint + Math.round(position / speed);
+        }
+
         public double getSpeed() {
             return speed;
         }
@@ -4,46 +4,59 @@
  */
 package exmoplay.engine;
 
+import java.awt.Dimension;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
-import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Set;
 
 import exmoplay.engine.actorframework.Actor;
+import exmoplay.engine.actorframework.Scheduler;
 import exmoplay.engine.messages.CacheBlock;
+import exmoplay.engine.messages.CacheInfo;
+import exmoplay.engine.messages.CacheInfoRequest;
 import exmoplay.engine.messages.CachedFrame;
 import exmoplay.engine.messages.CachedFrame.CachedFrameState;
 import exmoplay.engine.messages.FetchFrames;
+import exmoplay.engine.messages.FetchKeyFrame;
 import exmoplay.engine.messages.FrameRequest;
+import exmoplay.engine.messages.KeyFrameRequest;
+import exmoplay.engine.messages.OutputSize;
 import exmoplay.engine.messages.PrefetchRequest;
 import exmoplay.engine.messages.RecyclingBag;
+import exmoplay.engine.messages.SetBlockLayout;
+import exmoplay.engine.messages.SetCacheBudget;
+import exmoplay.engine.messages.SetOutputSize;
 
 public class FrameCache extends Actor {
     private static final boolean DEBUG = false;
     private static final boolean TRACE = false;
 
     // TODO do timing tests to find the optimal value
-    private static final int CACHE_MAX_BYTES = 250 * 1024 * 1024;
-    private static final int BLOCK_LENGTH = 8;
+    public static final long DEFAULT_CACHE_MAX_BYTES = 250L * 1024 * 1024;
+    public static final int BLOCK_LENGTH = 8; // maximum number of frames per block
     private static final int MIN_N_CACHE_BLOCKS = 3;
     private static final int DEFAULT_N_CACHE_BLOCKS = 12;
     private static final int CACHE_MIN_FREE = 2;
     private static final int CACHE_MAX_FREE = 2;
 
-    private final FrameFetcher frameFetcher;
+    private final FrameFetcher[] frameFetchers;
+    private BlockLayout layout;
+    private BlockLayout pendingLayout = null; // replaces the layout as soon as no outdated block is being fetched
 
     private CacheBlock[] cacheBlocks;
-    private final Map<Long, CacheBlock> blockByBaseSeqNum = new HashMap<Long, CacheBlock>();
-    private final PriorityQueue<CacheBlock> unusedLRU = new PriorityQueue<CacheBlock>();
+    private final LongMap<CacheBlock> blockByBaseSeqNum = new LongMap<CacheBlock>(DEFAULT_N_CACHE_BLOCKS);
+    private final BlockLRU unusedLRU = new BlockLRU();
 
     private final Queue<FrameRequest> queuedRequests = new LinkedList<FrameRequest>();
     private FrameRequest requestForIdleProcessing = null;
 
-    private boolean firstFrameFetched = false;
+    private long cacheMaxBytes;
+    private int frameByteSize = -1; // known after the first block was fetched
+    private int blocksToRemove = 0; // blocks to be removed as soon as they are no longer in use
+    private Dimension outputSize = null; // size of the frames the fetchers create (null if not set)
+    private long framesDecodedAgain = 0; // see requestFramesBackwardFromFetcher
 
     // actor responsibilities
     // 1) answer requests for frames (by number/?)
@@ -53,27 +66,57 @@ public class FrameCache extends Actor {
     // 5) track which buffers are still in use (cannot reload them, until returned)
 
     public FrameCache(Actor errorHandler, FrameFetcher frameFetcher) {
-        super(errorHandler, -1, Priority.NORM);
-        this.frameFetcher = frameFetcher;
+        this(errorHandler, frameFetcher, Scheduler.getDefault());
+    }
+
+    public FrameCache(Actor errorHandler, FrameFetcher frameFetcher, Scheduler scheduler) {
+        this(errorHandler, frameFetcher, DEFAULT_CACHE_MAX_BYTES, scheduler);
+    }
+
+    /**
+     * @param cacheMaxBytes the memory budget for decoded frames (the number of blocks is derived from it as soon as the
+     *            size of a frame is known, but there are always at least 3 blocks)
+     */
+    public FrameCache(Actor errorHandler, FrameFetcher frameFetcher, long cacheMaxBytes, Scheduler scheduler) {
+        this(errorHandler, new FrameFetcher[] { frameFetcher }, BlockLayout.fixed(BLOCK_LENGTH), cacheMaxBytes,
+                scheduler);
+    }
+
+    /**
+     * @param frameFetchers fetchers with a decoder each (blocks of a GOP always go to the same one, so that different
+     *            GOPs are decoded in parallel)
+     * @param layout how the video is divided into blocks (see {@link BlockLayout#keyFrameAligned(long[], int)})
+     * @param cacheMaxBytes the memory budget for decoded frames (the number of blocks is derived from it as soon as the
+     *            size of a frame is known, but there are always at least 3 blocks)
+     */
+    public FrameCache(Actor errorHandler, FrameFetcher[] frameFetchers, BlockLayout layout, long cacheMaxBytes,
+            Scheduler scheduler) {
+        super(errorHandler, -1, Priority.NORM, scheduler);
+        if (frameFetchers.length == 0)
+            throw new IllegalArgumentException("at least one frame fetcher is needed");
+        this.frameFetchers = frameFetchers.clone();
+        this.layout = layout;
+        this.cacheMaxBytes = cacheMaxBytes;
 
         cacheBlocks = new CacheBlock[DEFAULT_N_CACHE_BLOCKS];
         for (int i = 0; i < cacheBlocks.length; i++) {
-            CachedFrame[] frames = new CachedFrame[BLOCK_LENGTH];
-            for (int j = 0; j < frames.length; j++) {
-                frames[j] = new CachedFrame(i, this);
-                frames[j].seqNum = -1;
-                frames[j].frame = null;
-
-            }
-            cacheBlocks[i] = new CacheBlock(i, frames);
-            cacheBlocks[i].baseSeqNum = -1;
-            cacheBlocks[i].timestamp = 0L;
-            cacheBlocks[i].usageCount = 0;
-            cacheBlocks[i].state = CachedFrameState.EMPTY;
+            cacheBlocks[i] = createBlock(i);
+            // adding them, so they are available for use
+            unusedLRU.addLast(cacheBlocks[i]);
         }
+    }
 
-        // adding them, so they are available for use
-        unusedLRU.addAll(Arrays.asList(cacheBlocks));
+    private CacheBlock createBlock(int index) {
+        CachedFrame[] frames = new CachedFrame[layout.getMaxBlockLength()];
+        for (int j = 0; j < frames.length; j++) {
+            frames[j] = new CachedFrame(this);
+            frames[j].seqNum = -1;
+            frames[j].frame = null;
+        }
+        CacheBlock block = new CacheBlock(index, frames);
+        block.baseSeqNum = -1;
+        block.state = CachedFrameState.EMPTY;
+        return block;
     }
 
     @Override
@@ -84,6 +127,8 @@ public class FrameCache extends Actor {
         //   - if not contains, forward request to frame fetcher (and continue handling)
         if (message instanceof FrameRequest) {
             handleFrameRequest((FrameRequest) message);
+        } else if (message instanceof KeyFrameRequest) {
+            handleKeyFrameRequest((KeyFrameRequest) message);
         } else if (message instanceof PrefetchRequest) {
             prefetchFrame(((PrefetchRequest) message).baseSeqNum);
         }
@@ -95,11 +140,35 @@ public class FrameCache extends Actor {
             handleCacheBlock(block);
         }
 
-        // recycling bag
-        //   - mark frame from bag as no longer in use (reusable for new requests, but still containing a buffered frame)
+        // recycling bag (sent when the last usage of a block was given back)
+        //   - mark block from bag as no longer in use (reusable for new requests, but still containing buffered frames)
         else if (message instanceof RecyclingBag) {
             RecyclingBag rb = (RecyclingBag) message;
-            recycleFrame((CachedFrame) rb.object);
+            recycleBlock((CacheBlock) rb.object);
+        }
+
+        // memory budget
+        else if (message instanceof SetCacheBudget) {
+            cacheMaxBytes = ((SetCacheBudget) message).maxBytes;
+            applyBudget();
+        } else if (message instanceof CacheInfoRequest) {
+            ((CacheInfoRequest) message).responseTo.send(getCacheInfo());
+        }
+
+        // output size (the fetchers report back the size of the frames they create from then on)
+        else if (message instanceof SetOutputSize) {
+            SetOutputSize sos = (SetOutputSize) message;
+            for (FrameFetcher frameFetcher : frameFetchers) {
+                frameFetcher.send(new SetOutputSize(sos.maxSize, this));
+            }
+        } else if (message instanceof OutputSize) {
+            handleOutputSize(((OutputSize) message).size);
+        }
+
+        // layout (more key frames are known while the video is still being analyzed)
+        else if (message instanceof SetBlockLayout) {
+            pendingLayout = ((SetBlockLayout) message).layout;
+            applyPendingLayout();
         }
     }
 
@@ -110,27 +179,113 @@ public class FrameCache extends Actor {
         FrameRequest r = requestForIdleProcessing;
         if (r != null && unusedLRU.size() >= cacheBlocks.length - CACHE_MAX_FREE) {
             requestForIdleProcessing = null;
-            handleFrameRequest(new FrameRequest(r.seqNum, r.usageCount, false, r.responseTo));
+            handleFrameRequest(new FrameRequest(r.seqNum, r.usageCount, false, r.backward, r.responseTo));
         } else {
             super.idle();
         }
     }
 
     private void handleCacheBlock(CacheBlock block) {
-        if (!firstFrameFetched) {
-            firstFrameFetched = true;
-            // calculate ideal cache size
-            int frameByteSize = block.frames[0].frame.getSizeInBytes();
-            if (frameByteSize * BLOCK_LENGTH * DEFAULT_N_CACHE_BLOCKS > CACHE_MAX_BYTES)
-                resizeCacheIfStillPossible(frameByteSize);
+        if (frameByteSize == -1 && hasOutputSize(block)) {
+            // now the number of blocks fitting into the budget can be calculated
+            frameByteSize = block.frames[0].frame.getSizeInBytes();
+            applyBudget();
         }
 
-        if (block.usageCount == 0) {
+        if (block.usageCount.get() == 0) {
             addUnusedToCache(block);
         } else {
             block.state = CachedFrameState.IN_USE;
         }
         processQueuedRequests(queuedRequests);
+        applyPendingLayout();
+    }
+
+    /**
+     * Blocks that do not match the new layout are no longer found (the unused ones are discarded right away, the others
+     * as soon as they are no longer in use). While such a block is being fetched or requests are waiting for it, the
+     * layout is kept.
+     */
+    private void applyPendingLayout() {
+        if (pendingLayout == null)
+            return;
+        for (FrameRequest request : queuedRequests) {
+            CacheBlock block = blockByBaseSeqNum.get(layout.getBaseSeqNum(request.seqNum));
+            if (block != null && !fitsLayout(block, pendingLayout))
+                return;
+        }
+        for (CacheBlock block : cacheBlocks) {
+            if (block.state == CachedFrameState.FETCHING && block.baseSeqNum != -1 && !fitsLayout(block, pendingLayout))
+                return;
+        }
+        layout = pendingLayout;
+        pendingLayout = null;
+        for (CacheBlock block : cacheBlocks) {
+            if (block.baseSeqNum == -1 || blockByBaseSeqNum.get(block.baseSeqNum) != block || fitsLayout(block, layout))
+                continue;
+            if (block.state == CachedFrameState.CACHE) {
+                removeFromCache(block);
+                discardFrames(block);
+                unusedLRU.addFirst(block);
+            } else {
+                blockByBaseSeqNum.remove(block.baseSeqNum);
+            }
+        }
+    }
+
+    private static boolean fitsLayout(CacheBlock block, BlockLayout layout) {
+        return layout.isBaseSeqNum(block.baseSeqNum) && layout.getLength(block.baseSeqNum) == block.length;
+    }
+
+    /**
+     * Frames of another size are replaced (the unused blocks right away, the others as soon as they are no longer in
+     * use), so that the number of blocks follows the memory needed by frames of the new size.
+     */
+    private void handleOutputSize(Dimension size) {
+        // every fetcher reports the same size
+        if (size.equals(outputSize))
+            return;
+        outputSize = size;
+        frameByteSize = -1; // known again after the first block of the new size was fetched
+        for (CacheBlock block : cacheBlocks) {
+            if (unusedLRU.contains(block) && !hasOutputSize(block)) {
+                removeFromCache(block);
+                discardFrames(block);
+                unusedLRU.addFirst(block);
+            }
+        }
+        if (DEBUG) {
+            System.err.println("DEBUG: output size changed to " + size.width + "x" + size.height);
+        }
+    }
+
+    private boolean hasOutputSize(CacheBlock block) {
+        if (outputSize == null)
+            return true;
+        for (CachedFrame cf : block.frames) {
+            if (cf.frame != null
+                    && (cf.frame.video.getWidth() != outputSize.width || cf.frame.video.getHeight() != outputSize.height))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Frees the frames of an unused block, so that the fetcher creates new ones (of the current output size).
+     */
+    private void discardFrames(CacheBlock block) {
+        if (block.state == CachedFrameState.CACHE) {
+            blockByBaseSeqNum.remove(block.baseSeqNum);
+        }
+        for (CachedFrame cf : block.frames) {
+            if (cf.frame != null) {
+                cf.frame.delete();
+                cf.frame = null;
+            }
+            cf.seqNum = -1;
+        }
+        block.baseSeqNum = -1;
+        block.state = CachedFrameState.EMPTY;
     }
 
     private void handleFrameRequest(FrameRequest request) {
@@ -139,8 +294,8 @@ public class FrameCache extends Actor {
         }
         //DEBUG_cacheCounter.lend(request.seqNum, request.usageCount);
 
-        long seqNumOffset = request.seqNum % BLOCK_LENGTH;
-        long baseSeqNum = request.seqNum - seqNumOffset;
+        long baseSeqNum = layout.getBaseSeqNum(request.seqNum);
+        long seqNumOffset = request.seqNum - baseSeqNum;
         CacheBlock block = blockByBaseSeqNum.get(baseSeqNum);
         // if cache contains frame, take it from cache
         if (block != null) {
@@ -148,7 +303,7 @@ public class FrameCache extends Actor {
                 removeFromCache(block);
                 block.state = CachedFrameState.IN_USE;
             }
-            block.usageCount += request.usageCount;
+            block.usageCount.addAndGet(request.usageCount);
             if (block.state == CachedFrameState.FETCHING) {
                 // already fetching (just queue request for later reply)
                 queuedRequests.add(request);
@@ -176,7 +331,10 @@ public class FrameCache extends Actor {
                 if (request.onlyIfFreeResources) {
                     requestForIdleProcessing = null;
                 }
-                requestFramesFromFetcher(baseSeqNum, request.usageCount);
+                if (request.backward)
+                    requestFramesBackwardFromFetcher(baseSeqNum, request.usageCount);
+                else
+                    requestFramesFromFetcher(baseSeqNum, request.usageCount);
                 // queue request for later answer
                 queuedRequests.add(request);
                 if (TRACE) {
@@ -186,14 +344,90 @@ public class FrameCache extends Actor {
         }
     }
 
+    /**
+     * Answers with the exact frame if its block is cached (or being fetched), otherwise only the key frame before it is
+     * read (into a block that is not cached, because the other frames of it are missing).
+     */
+    private void handleKeyFrameRequest(KeyFrameRequest request) {
+        if (request.seqNum < 0) {
+            throw new IllegalArgumentException("Request for invalid seq num: " + request.seqNum);
+        }
+        long baseSeqNum = layout.getBaseSeqNum(request.seqNum);
+        if (blockByBaseSeqNum.containsKey(baseSeqNum)) {
+            handleFrameRequest(new FrameRequest(request.seqNum, request.usageCount, false, request.responseTo));
+            return;
+        }
+        if (unusedLRU.isEmpty()) {
+            // happens while dragging the progress bar: the next drag position is requested soon anyway
+            if (TRACE) {
+                System.err.println("TRACE: " + request.seqNum + ": no cache block free -> key frame request dropped");
+            }
+            return;
+        }
+        CacheBlock block = getUnusedFromCache();
+        if (block.state == CachedFrameState.CACHE) {
+            blockByBaseSeqNum.remove(block.baseSeqNum);
+        }
+        block.state = CachedFrameState.FETCHING;
+        block.baseSeqNum = -1; // not representing any block of the layout
+        block.length = 1;
+        block.usageCount.addAndGet(request.usageCount);
+        fetcherOf(baseSeqNum).send(new FetchKeyFrame(this, block, request.seqNum, request.responseTo));
+        if (TRACE) {
+            System.err.println("TRACE: " + request.seqNum + ": not cached -> fetching key frame only");
+        }
+    }
+
     private void requestFramesFromFetcher(long baseSeqNum, int usageCount) {
         CacheBlock block = reuseAndPrepareBlock(baseSeqNum, usageCount);
-        frameFetcher.send(new FetchFrames(this, block));
+        fetcherOf(baseSeqNum).send(new FetchFrames(this, block));
+    }
+
+    /**
+     * When playing backwards, the blocks of the GOP before the requested one are needed next. They are fetched along
+     * with it, so the GOP is decoded once instead of once per block. The fetch is bounded by the unused blocks (the
+     * budget is not exceeded): if the GOP does not fit, the fetcher still decodes it from the key frame and the frames
+     * before the fetched blocks are decoded again for the next fetch. These are counted (see {@link CacheInfo}).
+     */
+    private void requestFramesBackwardFromFetcher(long baseSeqNum, int usageCount) {
+        int gop = layout.getGopIndex(baseSeqNum);
+        int maxBlocks = Math.max(1, unusedLRU.size() - CACHE_MIN_FREE);
+        long firstSeqNum = baseSeqNum;
+        int n = 1;
+        while (n < maxBlocks && firstSeqNum > 0) {
+            long previous = layout.getBaseSeqNum(firstSeqNum - 1);
+            if (layout.getGopIndex(previous) != gop || blockByBaseSeqNum.containsKey(previous))
+                break;
+            firstSeqNum = previous;
+            n++;
+        }
+        CacheBlock[] blocks = new CacheBlock[n];
+        long seqNum = firstSeqNum;
+        for (int i = 0; i < n; i++) {
+            // only the requested block is in use, the others are just loaded into the cache
+            blocks[i] = reuseAndPrepareBlock(seqNum, seqNum == baseSeqNum ? usageCount : 0);
+            seqNum += blocks[i].length;
+        }
+        long gopStart = firstSeqNum;
+        while (gopStart > 0 && layout.getGopIndex(gopStart - 1) == gop) {
+            gopStart = layout.getBaseSeqNum(gopStart - 1);
+        }
+        framesDecodedAgain += firstSeqNum - gopStart;
+        if (TRACE) {
+            System.err.println("TRACE: " + baseSeqNum + ": fetching " + n + " blocks backwards from " + firstSeqNum
+                    + " (decoding " + (firstSeqNum - gopStart) + " frames again)");
+        }
+        fetcherOf(baseSeqNum).send(new FetchFrames(this, blocks));
+    }
+
+    private FrameFetcher fetcherOf(long baseSeqNum) {
+        // the blocks may come back out of order, but processQueuedRequests still answers the requests in order
+        return frameFetchers[layout.getGopIndex(baseSeqNum) % frameFetchers.length];
     }
 
     private void prefetchFrame(long baseSeqNum) {
-        if (baseSeqNum % BLOCK_LENGTH != 0) {
-            throw new IllegalArgumentException("not a base seq num, has offset: " + baseSeqNum);
+        if (!layout.isBaseSeqNum(baseSeqNum)) {
+            throw new IllegalArgumentException("not a base seq num: " + baseSeqNum);
         }
         if (!blockByBaseSeqNum.containsKey(baseSeqNum)) {
             // usage count is set as zero, because this request just loads something into cache
@@ -204,8 +438,8 @@ public class FrameCache extends Actor {
     private void processQueuedRequests(Queue<FrameRequest> queuedRequests) {
         while (!queuedRequests.isEmpty()) {
             FrameRequest fr = queuedRequests.peek();
-            int seqNumOffset = (int) (fr.seqNum % BLOCK_LENGTH);
-            long baseSeqNum = fr.seqNum - seqNumOffset;
+            long baseSeqNum = layout.getBaseSeqNum(fr.seqNum);
+            int seqNumOffset = (int) (fr.seqNum - baseSeqNum);
             CacheBlock block = blockByBaseSeqNum.get(baseSeqNum);
             if (block == null) {
                 throw new IllegalStateException("Request in queue for which there is no cache block found: seq num "
@@ -227,45 +461,53 @@ public class FrameCache extends Actor {
 
     private CacheBlock reuseAndPrepareBlock(long baseSeqNum, int usageCount) {
         CacheBlock block = getUnusedFromCache();
-        if (block.usageCount != 0) {
+        if (block.usageCount.get() != 0) {
             throw new IllegalStateException("Cache block must be unused right now (usageCount = " + block.usageCount
                     + ")");
         }
         block.state = CachedFrameState.FETCHING;
         blockByBaseSeqNum.remove(block.baseSeqNum); // no longer representing the old baseSeqNum
         block.baseSeqNum = baseSeqNum;
+        block.length = layout.getLength(baseSeqNum);
         blockByBaseSeqNum.put(baseSeqNum, block);
-        block.usageCount += usageCount;
+        block.usageCount.addAndGet(usageCount);
         return block;
     }
 
-    private void recycleFrame(CachedFrame cf) {
-        CacheBlock block = cacheBlocks[cf.index];
-        if (block.usageCount == 0) {
-            System.err.println("WARN: received a frame for recycling that whose block was already fully returned for recycling. "
-                    + cf.seqNum + " at block index " + block.index);
-            return;
-        }
-        block.usageCount--;
-        if (block.usageCount < 0) {
-            System.err.println("ILLEGAL_STATE: block.usageCount is negative (" + block.usageCount + ") for block "
-                    + block.index);
-        }
-        if (block.usageCount == 0) {
+    private void recycleBlock(CacheBlock block) {
+        // the block may have been handed out again in the meantime (or this is an outdated notification of an earlier
+        // time the count dropped to zero)
+        if (block.state == CachedFrameState.IN_USE && block.usageCount.get() == 0) {
             addUnusedToCache(block);
         }
-        //DEBUG_cacheCounter.giveBack(cf.seqNum);
     }
 
     private void addUnusedToCache(CacheBlock block) {
-        if (block.usageCount != 0) {
+        if (block.usageCount.get() != 0) {
             throw new IllegalStateException("Tried adding a cache block to the cache that is in use: cache index "
                     + block.index
                     + ", seq num " + block.baseSeqNum + ", state " + block.state);
         }
         block.state = CachedFrameState.CACHE;
-        block.timestamp = System.currentTimeMillis();
-        unusedLRU.add(block);
+        if (block.baseSeqNum == -1) {
+            // only held a key frame for scrubbing (nothing to keep in the cache)
+            block.state = CachedFrameState.EMPTY;
+            unusedLRU.addFirst(block);
+        } else if (blockByBaseSeqNum.get(block.baseSeqNum) != block) {
+            // outdated since the layout changed
+            block.state = CachedFrameState.EMPTY;
+            discardFrames(block);
+            unusedLRU.addFirst(block);
+        } else if (hasOutputSize(block)) {
+            unusedLRU.addLast(block);
+        } else {
+            // outdated since the output size changed
+            discardFrames(block);
+            unusedLRU.addFirst(block);
+        }
+        if (blocksToRemove > 0) {
+            removeUnusedBlocks();
+        }
         //System.err.println("DEBUG: Returned block to unused blocks: " + unusedLRU.size() + " (usage count: "
         //        + block.usageCount + ") index: " + block.index);
     }
@@ -282,22 +524,56 @@ public class FrameCache extends Actor {
             //DEBUG_cacheCounter.printStatistics();
             throw new IllegalStateException("No cache block available to reuse");
         }
-        CacheBlock block = unusedLRU.poll();
+        CacheBlock block = unusedLRU.pollFirst();
         //System.err.println("DEBUG: removed cache block " + block.index + ", usageCount: " + block.usageCount);
         return block;
     }
 
-    private void resizeCacheIfStillPossible(int frameByteSize) {
-        // maximum number of blocks that go below CACHE_MAX_BYTES, but always at least 3 (for correct functioning of the engine)
-        int acceptableNCacheBlocks = Math.max(MIN_N_CACHE_BLOCKS,
-                (int) Math.floor(CACHE_MAX_BYTES / (frameByteSize * BLOCK_LENGTH)));
-        int blocksToRemove = DEFAULT_N_CACHE_BLOCKS - acceptableNCacheBlocks;
+    /**
+     * Adjusts the number of blocks to the budget. Growing happens immediately, shrinking removes the least recently
+     * used unused blocks (blocks still in use are removed as soon as they are returned).
+     */
+    private void applyBudget() {
+        if (frameByteSize == -1)
+            return; // wait until the size of a frame is known
+        long blockBytes = (long) frameByteSize * layout.getMaxBlockLength();
+        int targetNBlocks = (int) Math.max(MIN_N_CACHE_BLOCKS, Math.min(Integer.MAX_VALUE, cacheMaxBytes / blockBytes));
+        int nBlocks = cacheBlocks.length - blocksToRemove;
+        if (targetNBlocks > nBlocks) {
+            // first cancel pending removals
+            int toAdd = targetNBlocks - nBlocks;
+            int cancelled = Math.min(blocksToRemove, toAdd);
+            blocksToRemove -= cancelled;
+            addBlocks(toAdd - cancelled);
+        } else if (targetNBlocks < nBlocks) {
+            blocksToRemove += nBlocks - targetNBlocks;
+            removeUnusedBlocks();
+        }
+        if (DEBUG) {
+            System.err.println("DEBUG: cache budget applied: " + getCacheInfo());
+        }
+    }
+
+    private void addBlocks(int n) {
+        if (n <= 0)
+            return;
+        CacheBlock[] newBlocks = Arrays.copyOf(cacheBlocks, cacheBlocks.length + n);
+        for (int i = cacheBlocks.length; i < newBlocks.length; i++) {
+            newBlocks[i] = createBlock(i);
+            // empty blocks are used before evicting any cached frames
+            unusedLRU.addFirst(newBlocks[i]);
+        }
+        cacheBlocks = newBlocks;
+    }
+
+    private void removeUnusedBlocks() {
         Set<CacheBlock> removedBlocks = new HashSet<CacheBlock>();
-        for (int i = 0; i < blocksToRemove; i++) {
-            CacheBlock b = unusedLRU.peek();
-            if (b == null || b.state != CachedFrameState.EMPTY)
-                break;
-            removedBlocks.add(unusedLRU.remove());
+        while (blocksToRemove > 0 && !unusedLRU.isEmpty()) {
+            CacheBlock b = unusedLRU.pollFirst();
+            // free the (native) memory of the frames
+            discardFrames(b);
+            removedBlocks.add(b);
+            blocksToRemove--;
         }
 
         // resize existing blocks array
@@ -316,6 +592,12 @@ public class FrameCache extends Actor {
         }
     }
 
+    private CacheInfo getCacheInfo() {
+        int nBlocks = cacheBlocks.length - blocksToRemove;
+        return new CacheInfo(cacheMaxBytes, nBlocks, nBlocks * layout.getMaxBlockLength(), frameByteSize,
+                framesDecodedAgain);
+    }
+
     /*private CacheCounter DEBUG_cacheCounter = new CacheCounter();
 
     private class CacheCounter {
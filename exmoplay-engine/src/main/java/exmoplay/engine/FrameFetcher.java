@@ -12,11 +12,16 @@ import exmoplay.access.MediaInfo;
 import exmoplay.access.VideoFormat;
 import exmoplay.access.XugglerMediaInputStream;
 import exmoplay.engine.actorframework.Actor;
+import exmoplay.engine.actorframework.Scheduler;
 import exmoplay.engine.messages.CacheBlock;
 import exmoplay.engine.messages.CachedFrame;
 import exmoplay.engine.messages.FetchFrames;
+import exmoplay.engine.messages.FetchKeyFrame;
 import exmoplay.engine.messages.MediaInfoRequest;
 import exmoplay.engine.messages.MediaInfoResponse;
+import exmoplay.engine.messages.MediaInfoUpdate;
+import exmoplay.engine.messages.OutputSize;
+import exmoplay.engine.messages.SetOutputSize;
 
 public class FrameFetcher extends Actor {
     private static final boolean DEBUG = false;
@@ -28,7 +33,11 @@ public class FrameFetcher extends Actor {
     private double frameRate = 0;
 
     public FrameFetcher(Actor errorHandler, File mediaFile, MediaInfo mediaInfo) {
-        super(errorHandler, -1, Priority.NORM);
+        this(errorHandler, mediaFile, mediaInfo, Scheduler.getDefault());
+    }
+
+    public FrameFetcher(Actor errorHandler, File mediaFile, MediaInfo mediaInfo, Scheduler scheduler) {
+        super(errorHandler, -1, Priority.NORM, scheduler);
         this.mediaFile = mediaFile;
         this.mediaInfo = mediaInfo;
     }
@@ -48,8 +57,15 @@ public class FrameFetcher extends Actor {
     protected void act(Object message) {
         if (message instanceof FetchFrames) {
             handleFetchFrames((FetchFrames) message);
+        } else if (message instanceof FetchKeyFrame) {
+            handleFetchKeyFrame((FetchKeyFrame) message);
         } else if (message instanceof MediaInfoRequest) {
             handleMediaInfoRequest((MediaInfoRequest) message);
+        } else if (message instanceof SetOutputSize) {
+            handleSetOutputSize((SetOutputSize) message);
+        } else if (message instanceof MediaInfoUpdate) {
+            // more of the video is analyzed (the frame rate stays the one of the first media info)
+            mediaInputStream.setMediaInfo(((MediaInfoUpdate) message).mediaInfo);
         } else {
             throw new IllegalStateException("received unknown message");
         }
@@ -57,37 +73,72 @@ public class FrameFetcher extends Actor {
 
     private void handleFetchFrames(FetchFrames message) {
         long startMillis = System.currentTimeMillis();
-        CacheBlock block = message.block;
-        // set position and find seq nr
-        long position = (long) (1000.0 * block.baseSeqNum / frameRate);
+        CacheBlock first = message.blocks[0];
+        // set position and find seq nr (the stream only seeks if the block does not follow closely on the last one)
+        long position = (long) (1000.0 * first.baseSeqNum / frameRate);
         long actualPosition = mediaInputStream.setPosition(position);
         if (TRACE) {
-            System.out.println("TRACE: " + block.baseSeqNum + ": fetching at position " + position
+            System.out.println("TRACE: " + first.baseSeqNum + ": fetching at position " + position
                     + "ms and was positionioned at " + actualPosition + "ms (difference " + (actualPosition - position)
                     + "ms)");
         }
         long afterSetPositionMillis = System.currentTimeMillis();
-        long startSeqNr = block.baseSeqNum; //Math.round(newPosition * frameRate);
+        long startSeqNr = first.baseSeqNum; //Math.round(newPosition * frameRate);
 
-        // read frames from stream
-        for (CachedFrame f : block.frames) {
-            // allocating a buffer if the cachedFrame does not bring one already
-            if (f.frame == null) {
-                f.frame = mediaInputStream.createFrame();
+        // read frames from stream (the blocks are consecutive)
+        for (CacheBlock block : message.blocks) {
+            for (int i = 0; i < block.length; i++) {
+                CachedFrame f = block.frames[i];
+                // allocating a buffer if the cachedFrame does not bring one already
+                if (f.frame == null) {
+                    f.frame = mediaInputStream.createFrame();
+                }
+                mediaInputStream.readFrame(f.frame);
+                f.seqNum = startSeqNr++;
+                f.keyFrameOnly = false;
             }
-            mediaInputStream.readFrame(f.frame);
-            f.seqNum = startSeqNr++;
         }
-        message.responseTo.send(block);
+        // last block first (when fetching several, playback is going backwards)
+        for (int i = message.blocks.length - 1; i >= 0; i--) {
+            message.responseTo.send(message.blocks[i]);
+        }
         long endMillis = System.currentTimeMillis();
         double seekingSeconds = (afterSetPositionMillis - startMillis) / 1000.0;
         double totalSeconds = (endMillis - startMillis) / 1000.0;
         if (DEBUG) {
-            System.out.println("DEBUG: " + block.baseSeqNum + ": total fetch time " + totalSeconds + "s (seeking "
-                    + seekingSeconds + "s)");
+            System.out.println("DEBUG: " + first.baseSeqNum + ": total fetch time of " + message.blocks.length
+                    + " blocks " + totalSeconds + "s (seeking " + seekingSeconds + "s); seeks: "
+                    + mediaInputStream.getSeeks() + ", avoided: " + mediaInputStream.getSeeksAvoided()
+                    + ", discarded frames: " + mediaInputStream.getDiscardedVideoFrames());
         }
     }
 
+    private void handleFetchKeyFrame(FetchKeyFrame message) {
+        long startMillis = System.currentTimeMillis();
+        CachedFrame f = message.block.frames[0];
+        if (f.frame == null) {
+            f.frame = mediaInputStream.createFrame();
+        }
+        long position = (long) (1000.0 * message.seqNum / frameRate);
+        long keyFrame = mediaInputStream.readKeyFrame(position, f.frame);
+        f.seqNum = keyFrame != -1 ? keyFrame : message.seqNum;
+        f.keyFrameOnly = true;
+        // the cache has to know the block is in use before the frame can be recycled
+        message.responseTo.send(message.block);
+        message.frameResponseTo.send(f);
+        if (DEBUG) {
+            System.out.println("DEBUG: " + message.seqNum + ": read key frame " + keyFrame + " in "
+                    + (System.currentTimeMillis() - startMillis) + "ms");
+        }
+    }
+
+    private void handleSetOutputSize(SetOutputSize message) {
+        // only frames created from now on have the new size (the cache replaces the others)
+        mediaInputStream.setMaxOutputSize(message.maxSize);
+        if (message.responseTo != null)
+            message.responseTo.send(new OutputSize(mediaInputStream.getOutputSize()));
+    }
+
     private void handleMediaInfoRequest(MediaInfoRequest message) {
         VideoFormat videoFormat = mediaInputStream.getVideoFormat();
         AudioFormat audioFormat = mediaInputStream.getAudioFormat();
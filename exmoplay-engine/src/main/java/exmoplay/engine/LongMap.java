@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine;
+
+/**
+ * A map from primitive long keys to (non null) values using open addressing with linear probing. Lookups, insertions
+ * and removals do not allocate (except when growing).
+ * 
+ * @author agent
+ */
+final class LongMap<V> {
+
+    private long[] keys;
+    private Object[] values; // null marks a free slot
+    private int mask;
+    private int size = 0;
+
+    LongMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize) * 2 - 1) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slotOf(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    /**
+     * @return the slot containing the key or the free slot where it would be inserted
+     */
+    private int find(long key) {
+        int slot = slotOf(key);
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        return (V) values[find(key)];
+    }
+
+    boolean containsKey(long key) {
+        return values[find(key)] != null;
+    }
+
+    /**
+     * @return the value previously stored for the key (or null)
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (value == null)
+            throw new IllegalArgumentException("null values are not supported");
+        int slot = find(key);
+        V previous = (V) values[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        if (previous == null) {
+            size++;
+            if (size * 2 > values.length)
+                grow();
+        }
+        return previous;
+    }
+
+    /**
+     * @return the removed value (or null if the key was not contained)
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int slot = find(key);
+        V removed = (V) values[slot];
+        if (removed == null)
+            return null;
+        values[slot] = null;
+        size--;
+        // shift back following entries of the probe sequence, so lookups never stop early at the freed slot
+        int free = slot;
+        int next = (slot + 1) & mask;
+        while (values[next] != null) {
+            int home = slotOf(keys[next]);
+            // move if the entry's home slot is not (cyclically) between the freed slot and its current slot
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                values[next] = null;
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        return removed;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        mask = values.length - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
@@ -4,18 +4,27 @@
  */
 package exmoplay.engine;
 
+import java.awt.Image;
 import java.io.File;
+import java.io.IOException;
 
 import javax.sound.sampled.AudioFormat;
 import javax.swing.SwingUtilities;
 
+import exmoplay.access.MediaAnalysis;
+import exmoplay.access.MediaAnalyzer;
 import exmoplay.access.MediaInfo;
+import exmoplay.access.MediaInfoStore;
 import exmoplay.access.VideoFormat;
 import exmoplay.engine.actorframework.Actor;
 import exmoplay.engine.actorframework.Actor.Priority;
 import exmoplay.engine.actorframework.MessageSendable;
 import exmoplay.engine.actorframework.ObjectReceiver;
 import exmoplay.engine.actorframework.RegisterForUpdates;
+import exmoplay.engine.actorframework.Scheduler;
+import exmoplay.engine.messages.AdaptiveResolution;
+import exmoplay.engine.messages.CacheInfo;
+import exmoplay.engine.messages.CacheInfoRequest;
 import exmoplay.engine.messages.CachedFrame;
 import exmoplay.engine.messages.ControlCommand;
 import exmoplay.engine.messages.ControlCommand.Command;
@@ -26,15 +35,53 @@ import exmoplay.engine.messages.MediaInfoRequest;
 import exmoplay.engine.messages.MediaInfoResponse;
 import exmoplay.engine.messages.NewVideo;
 import exmoplay.engine.messages.PositionUpdate;
+import exmoplay.engine.messages.SetCacheBudget;
 import exmoplay.engine.messages.SetPosition;
 import exmoplay.engine.messages.StatusRequest;
 import exmoplay.engine.messages.StatusResponse;
+import exmoplay.engine.messages.ThumbnailRequest;
+import exmoplay.engine.messages.ThumbnailResponse;
 import exmoplay.engine.ui.ControlBar;
 import exmoplay.engine.ui.VideoScreen;
 
 public class MediaPlayer {
 
-    private Actor errorHandler = new Actor(null, -1, Priority.MIN) {
+    private final Actor errorHandler;
+    private final Controller controller;
+    private VideoRenderer videoRenderer;
+    private MediaInfoResponse mediaInfo;
+    private BackgroundAnalyzer backgroundAnalyzer; // while the opened video is still being analyzed
+    private long cacheMaxBytes;
+
+    public MediaPlayer() {
+        this(Scheduler.getDefault());
+    }
+
+    /**
+     * @param scheduler the scheduler for all actors of this player (e.g. a pooled scheduler shared by many players)
+     */
+    public MediaPlayer(Scheduler scheduler) {
+        this(scheduler, FrameCache.DEFAULT_CACHE_MAX_BYTES);
+    }
+
+    /**
+     * @param scheduler the scheduler for all actors of this player (e.g. a pooled scheduler shared by many players)
+     * @param cacheMaxBytes the memory budget for decoded frames (see {@link #setCacheBudget(long)})
+     */
+    public MediaPlayer(Scheduler scheduler, long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+        errorHandler = new ErrorHandler(scheduler);
+        controller = new Controller(errorHandler, scheduler);
+        errorHandler.start();
+        controller.start();
+        videoRenderer = controller.getVideoRenderer();
+    }
+
+    private static class ErrorHandler extends Actor {
+        ErrorHandler(Scheduler scheduler) {
+            super(null, -1, Priority.MIN, scheduler);
+        }
+
         @Override
         protected void act(Object message) {
             if (message instanceof MediaError) {
@@ -45,15 +92,6 @@ public class MediaPlayer {
                 System.err.println("A unknown type of error occured: " + message);
             }
         }
-    };
-    private Controller controller = new Controller(errorHandler);
-    private VideoRenderer videoRenderer;
-    private MediaInfoResponse mediaInfo;
-
-    public MediaPlayer() {
-        errorHandler.start();
-        controller.start();
-        videoRenderer = controller.getVideoRenderer();
     }
 
     public VideoScreen createScreen() {
@@ -70,23 +108,49 @@ public class MediaPlayer {
         videoRenderer.send(new CurrentScreen(screen));
     }
 
+    /**
+     * Opens the video without waiting for its whole analysis: only its beginning is analyzed before (or the stored
+     * result is taken, see {@link MediaInfoStore#getDefault()}), the rest is analyzed in the background. Playing and
+     * seeking is limited to the analyzed part, which grows until the whole video is analyzed (the end is reported
+     * with the position updates).
+     */
+    public void openVideo(File file) throws IOException {
+        MediaAnalysis analysis = MediaAnalyzer.startAnalysis(file, MediaInfoStore.getDefault());
+        MediaInfo analyzed;
+        try {
+            analyzed = analysis.analyzeUntilPlayable();
+        } catch (RuntimeException e) {
+            analysis.close();
+            throw e;
+        }
+        openVideo(new NewVideo(file, analyzed, null, null, null, cacheMaxBytes));
+        if (!analysis.isDone()) {
+            backgroundAnalyzer = new BackgroundAnalyzer(errorHandler, analysis, controller, controller.getScheduler());
+            backgroundAnalyzer.start();
+        }
+    }
+
     public void openVideo(File file, MediaInfo mediaInfo) {
-        openVideo(new NewVideo(file, mediaInfo));
+        openVideo(new NewVideo(file, mediaInfo, null, null, null, cacheMaxBytes));
     }
 
     public void openVideo(File file, MediaInfo mediaInfo, long initialPosition) {
-        openVideo(new NewVideo(file, mediaInfo, initialPosition));
+        openVideo(new NewVideo(file, mediaInfo, initialPosition, null, null, cacheMaxBytes));
     }
 
     public void openVideo(File file, MediaInfo mediaInfo, long timerMin, long timerMax) {
-        openVideo(new NewVideo(file, mediaInfo, timerMin, timerMax));
+        openVideo(new NewVideo(file, mediaInfo, null, timerMin, timerMax, cacheMaxBytes));
     }
 
     public void openVideo(File file, MediaInfo mediaInfo, long initialPosition, long timerMin, long timerMax) {
-        openVideo(new NewVideo(file, mediaInfo, initialPosition, timerMin, timerMax));
+        openVideo(new NewVideo(file, mediaInfo, initialPosition, timerMin, timerMax, cacheMaxBytes));
     }
 
     private void openVideo(NewVideo message) {
+        if (backgroundAnalyzer != null) {
+            backgroundAnalyzer.stop();
+            backgroundAnalyzer = null;
+        }
         controller.send(message);
         ObjectReceiver r = new ObjectReceiver();
         controller.send(new MediaInfoRequest(r));
@@ -101,6 +165,9 @@ public class MediaPlayer {
         return mediaInfo.videoFormat;
     }
 
+    /**
+     * @return the duration of the video (of the part analyzed when it was opened, see {@link #openVideo(File)})
+     */
     public long getVideoDuration() {
         return mediaInfo.duration;
     }
@@ -142,6 +209,46 @@ public class MediaPlayer {
         }));
     }
 
+    /**
+     * Changes the memory budget for decoded frames, also while playing (the cache grows immediately and shrinks as
+     * soon as frames are no longer in use).
+     * 
+     * @param maxBytes the maximum number of bytes of all cached frames
+     */
+    public void setCacheBudget(long maxBytes) {
+        cacheMaxBytes = maxBytes;
+        controller.send(new SetCacheBudget(maxBytes));
+    }
+
+    /**
+     * With adaptive resolution, frames are decoded in the size of the active screen instead of the size of the video
+     * (if smaller), so more frames fit into the cache budget. The cached frames are replaced when the size changes.
+     */
+    public void setAdaptiveResolution(boolean enabled) {
+        videoRenderer.send(new AdaptiveResolution(enabled));
+    }
+
+    /**
+     * Thumbnails of the key frames are read in the background after a video was opened, so this returns immediately.
+     * 
+     * @param position in milliseconds
+     * @return a small image of the key frame at or next to the position (null if none was read yet)
+     */
+    public Image getThumbnail(long position) {
+        ObjectReceiver r = new ObjectReceiver();
+        controller.send(new ThumbnailRequest(position, r));
+        return ((ThumbnailResponse) r.waitForMessage()).image;
+    }
+
+    /**
+     * @return the effective capacity of the frame cache
+     */
+    public CacheInfo getCacheInfo() {
+        ObjectReceiver r = new ObjectReceiver();
+        controller.send(new CacheInfoRequest(r));
+        return (CacheInfo) r.waitForMessage();
+    }
+
     public void restrictPositionRange(Long min, Long max) {
         controller.send(new StatusRequest(min, max, null));
     }
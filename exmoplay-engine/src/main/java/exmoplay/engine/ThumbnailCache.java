@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Arrays;
+
+import exmoplay.access.MediaFrame;
+import exmoplay.access.MediaInfo;
+import exmoplay.access.XugglerMediaInputStream;
+import exmoplay.engine.actorframework.Actor;
+import exmoplay.engine.actorframework.Scheduler;
+import exmoplay.engine.messages.MediaInfoUpdate;
+import exmoplay.engine.messages.ThumbnailRequest;
+import exmoplay.engine.messages.ThumbnailResponse;
+
+/**
+ * Holds small images of the key frames of the whole video (of every n-th key frame if there are many), so that a
+ * preview can be shown immediately for any position, e.g. while scrubbing. The thumbnails are read in the background
+ * with a decoder of its own, coarse to fine, so the whole timeline is covered roughly after a few of them. While the
+ * video is still being analyzed, the thumbnails are extended to the newly analyzed part with each media info update.
+ * 
+ * @author agent
+ */
+public class ThumbnailCache extends Actor {
+    private static final boolean DEBUG = false;
+
+    public static final int THUMBNAIL_WIDTH = 128;
+    private static final int MAX_THUMBNAILS = 300;
+
+    // sent to itself for reading the next thumbnail (requests are answered in between)
+    private static class ReadNextThumbnail {
+    }
+
+    private final File mediaFile;
+    private final MediaInfo mediaInfo;
+    private XugglerMediaInputStream mediaInputStream;
+    private MediaFrame frame;
+    private double frameRate;
+
+    private long[] frameNumbers; // of the thumbnails, ascending
+    private BufferedImage[] thumbnails; // never changed once read (so they can be handed out)
+    private int[] readOrder; // of the thumbnails not read yet
+    private int nRead = 0;
+    private boolean reading = false; // a ReadNextThumbnail is queued
+    private long startMillis;
+
+    public ThumbnailCache(Actor errorHandler, File mediaFile, MediaInfo mediaInfo, Scheduler scheduler) {
+        super(errorHandler, -1, Priority.MIN, scheduler);
+        this.mediaFile = mediaFile;
+        this.mediaInfo = mediaInfo;
+    }
+
+    @Override
+    protected void init() throws Exception {
+        startMillis = System.currentTimeMillis();
+        mediaInputStream = new XugglerMediaInputStream(mediaFile, mediaInfo);
+        // decoded at (about) the width of the thumbnails already
+        mediaInputStream.setMaxOutputSize(new Dimension(THUMBNAIL_WIDTH, 1));
+        frame = mediaInputStream.createFrame();
+        frameRate = mediaInputStream.getVideoFormat().getFrameRate();
+
+        selectThumbnails(mediaInfo.getKeyFrameNumbers());
+        scheduleReading();
+    }
+
+    /**
+     * Chooses the key frames to have thumbnails of. Thumbnails already read for one of them are kept, the others are
+     * read in coarse to fine order.
+     */
+    private void selectThumbnails(long[] keyFrames) {
+        if (keyFrames.length == 0)
+            keyFrames = new long[] { 0 };
+        int every = (keyFrames.length + MAX_THUMBNAILS - 1) / MAX_THUMBNAILS;
+        long[] newFrameNumbers = new long[(keyFrames.length + every - 1) / every];
+        BufferedImage[] newThumbnails = new BufferedImage[newFrameNumbers.length];
+        int nMissing = newFrameNumbers.length;
+        for (int i = 0; i < newFrameNumbers.length; i++) {
+            newFrameNumbers[i] = keyFrames[i * every];
+            int j = frameNumbers == null ? -1 : Arrays.binarySearch(frameNumbers, newFrameNumbers[i]);
+            if (j >= 0 && thumbnails[j] != null) {
+                newThumbnails[i] = thumbnails[j];
+                nMissing--;
+            }
+        }
+        frameNumbers = newFrameNumbers;
+        thumbnails = newThumbnails;
+        readOrder = new int[nMissing];
+        int k = 0;
+        for (int index : coarseToFineOrder(frameNumbers.length)) {
+            if (thumbnails[index] == null)
+                readOrder[k++] = index;
+        }
+        nRead = 0;
+    }
+
+    private void scheduleReading() {
+        if (!reading && nRead < readOrder.length) {
+            reading = true;
+            send(new ReadNextThumbnail());
+        }
+    }
+
+    /**
+     * @return the indices 0 to n-1 in the order 0, n/2, n/4, 3n/4, n/8, ... (roughly, for any n)
+     */
+    private static int[] coarseToFineOrder(int n) {
+        int[] order = new int[n];
+        int k = 0;
+        int step = Integer.highestOneBit(Math.max(1, n));
+        for (int i = 0; i < n; i += step) {
+            order[k++] = i;
+        }
+        for (; step > 1; step /= 2) {
+            for (int i = step / 2; i < n; i += step) {
+                order[k++] = i;
+            }
+        }
+        return order;
+    }
+
+    @Override
+    protected void destruct() {
+        if (frame != null)
+            frame.delete();
+        if (mediaInputStream != null)
+            mediaInputStream.close();
+    }
+
+    @Override
+    protected void act(Object message) {
+        if (message instanceof ReadNextThumbnail) {
+            readNextThumbnail();
+        } else if (message instanceof ThumbnailRequest) {
+            handleThumbnailRequest((ThumbnailRequest) message);
+        } else if (message instanceof MediaInfoUpdate) {
+            handleMediaInfoUpdate((MediaInfoUpdate) message);
+        } else {
+            throw new IllegalStateException("received unknown message");
+        }
+    }
+
+    @Override
+    protected void discard(Object message) {
+        if (message instanceof ThumbnailRequest)
+            ((ThumbnailRequest) message).responseTo.send(new ThumbnailResponse(null, -1));
+    }
+
+    /**
+     * Extends the thumbnails to the newly analyzed part (the frame rate stays the one of the first media info).
+     */
+    private void handleMediaInfoUpdate(MediaInfoUpdate message) {
+        mediaInputStream.setMediaInfo(message.mediaInfo);
+        selectThumbnails(message.mediaInfo.getKeyFrameNumbers());
+        scheduleReading();
+    }
+
+    private void readNextThumbnail() {
+        reading = false;
+        if (nRead == readOrder.length)
+            return; // all thumbnails were already read when the media info was updated
+        int index = readOrder[nRead++];
+        long position = (long) (frameNumbers[index] * 1000.0 / frameRate);
+        mediaInputStream.readKeyFrame(position, frame);
+        if (!frame.isEndOfMedia()) {
+            thumbnails[index] = scale(frame.video.getImage());
+        }
+        if (nRead < readOrder.length) {
+            scheduleReading();
+        } else if (DEBUG) {
+            System.out.println("DEBUG: read " + thumbnails.length + " thumbnails in "
+                    + (System.currentTimeMillis() - startMillis) + "ms");
+        }
+    }
+
+    /**
+     * Also copies the image (the one of the frame is overwritten by the next thumbnail).
+     */
+    private static BufferedImage scale(Image image) {
+        int width = image.getWidth(null);
+        int height = image.getHeight(null);
+        if (width > THUMBNAIL_WIDTH) {
+            // the stream could not scale it down
+            height = Math.max(1, height * THUMBNAIL_WIDTH / width);
+            width = THUMBNAIL_WIDTH;
+        }
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = thumbnail.createGraphics();
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return thumbnail;
+    }
+
+    /**
+     * Answers with the thumbnail at or before the position (or the first one after it, if there is none before).
+     */
+    private void handleThumbnailRequest(ThumbnailRequest request) {
+        long frameNumber = (long) Math.floor(request.position * frameRate / 1000);
+        int i = Arrays.binarySearch(frameNumbers, frameNumber);
+        int before = i >= 0 ? i : -i - 2;
+        for (int j = before; j >= 0; j--) {
+            if (thumbnails[j] != null) {
+                respond(request, j);
+                return;
+            }
+        }
+        for (int j = before + 1; j < thumbnails.length; j++) {
+            if (thumbnails[j] != null) {
+                respond(request, j);
+                return;
+            }
+        }
+        request.responseTo.send(new ThumbnailResponse(null, -1));
+    }
+
+    private void respond(ThumbnailRequest request, int index) {
+        long position = (long) Math.ceil(frameNumbers[index] * 1000 / frameRate);
+        request.responseTo.send(new ThumbnailResponse(thumbnails[index], position));
+    }
+}
@@ -5,22 +5,36 @@
 package exmoplay.engine;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 
 import javax.swing.SwingUtilities;
 
 import exmoplay.engine.actorframework.Actor;
+import exmoplay.engine.actorframework.Scheduler;
+import exmoplay.engine.messages.AdaptiveResolution;
 import exmoplay.engine.messages.CachedFrame;
 import exmoplay.engine.messages.CurrentScreen;
 import exmoplay.engine.messages.ImageRequest;
 import exmoplay.engine.messages.ImageResponse;
 import exmoplay.engine.messages.Repaint;
+import exmoplay.engine.messages.ScreenResized;
+import exmoplay.engine.messages.SetOutputSize;
 import exmoplay.engine.ui.VideoScreen;
 
 public class VideoRenderer extends Actor {
 
+    // the output size is rounded up to it, so that small changes of the screen size keep the cached frames
+    private static final int OUTPUT_SIZE_STEP = 64;
+
+    private final Actor outputSizeListener;
+    private boolean adaptiveResolution = false;
+    private Dimension outputSize = null; // last size sent to the listener (null for the size of the video)
+
     private VideoScreen currentScreen;
 
     private CachedFrame currentFrame;
@@ -28,7 +42,20 @@ public class VideoRenderer extends Actor {
     private Image currentImage;
 
     public VideoRenderer(Actor errorHandler) {
-        super(errorHandler, -1, Priority.MAX);
+        this(errorHandler, Scheduler.getDefault());
+    }
+
+    public VideoRenderer(Actor errorHandler, Scheduler scheduler) {
+        this(errorHandler, null, scheduler);
+    }
+
+    /**
+     * @param outputSizeListener receives a {@link SetOutputSize} whenever the size frames are needed in changes (only
+     *            if adaptive resolution is enabled)
+     */
+    public VideoRenderer(Actor errorHandler, Actor outputSizeListener, Scheduler scheduler) {
+        super(errorHandler, -1, Priority.MAX, scheduler);
+        this.outputSizeListener = outputSizeListener;
     }
 
     @Override
@@ -48,18 +75,59 @@ public class VideoRenderer extends Actor {
             }
         } else if (message instanceof CurrentScreen) {
             currentScreen = ((CurrentScreen) message).screen;
+            updateOutputSize();
+        } else if (message instanceof ScreenResized) {
+            if (((ScreenResized) message).screen == currentScreen)
+                updateOutputSize();
+        } else if (message instanceof AdaptiveResolution) {
+            adaptiveResolution = ((AdaptiveResolution) message).enabled;
+            updateOutputSize();
         } else if (message instanceof Repaint) {
             Repaint repaint = (Repaint) message;
             paintImageOnScreen(repaint.screen, currentImage);
         } else if (message instanceof ImageRequest) {
             ImageRequest request = (ImageRequest) message;
-            request.responseTo.send(new ImageResponse(currentImage));
+            request.responseTo.send(new ImageResponse(copyOf(currentImage)));
         } else {
             throw new IllegalArgumentException("unknown type of message: " + message.getClass().getName());
         }
 
     }
 
+    /**
+     * Frames are needed in the size of the image area of the current screen if adaptive resolution is enabled and in the
+     * size of the video otherwise.
+     */
+    private void updateOutputSize() {
+        if (outputSizeListener == null)
+            return;
+        Dimension size = null;
+        if (adaptiveResolution && currentScreen != null) {
+            Rectangle area = getImageArea(currentScreen);
+            if (area.width <= 0 || area.height <= 0)
+                return; // not laid out yet
+            size = new Dimension(roundUpToStep(area.width), roundUpToStep(area.height));
+        }
+        if (size == null ? outputSize != null : !size.equals(outputSize)) {
+            outputSize = size;
+            outputSizeListener.send(new SetOutputSize(size));
+        }
+    }
+
+    private static int roundUpToStep(int n) {
+        return (n + OUTPUT_SIZE_STEP - 1) / OUTPUT_SIZE_STEP * OUTPUT_SIZE_STEP;
+    }
+
+    /**
+     * The image of a frame is overwritten when the frame is reused, so it is copied before handing it out.
+     */
+    private static Image copyOf(Image image) {
+        if (image == null)
+            return null;
+        BufferedImage source = (BufferedImage) image;
+        return new BufferedImage(source.getColorModel(), source.copyData(null), source.isAlphaPremultiplied(), null);
+    }
+
     private static void paintImageOnScreen(final VideoScreen screen, final Image image) {
         SwingUtilities.invokeLater(new Runnable() {
             @Override
@@ -90,29 +158,37 @@ public class VideoRenderer extends Actor {
         g.fillRect(x, y, width, height);
     }
 
-    private static void paintImage(VideoScreen screen, Graphics2D g, Image image) {
-        int x = 0;
-        int y = 0;
+    /**
+     * @return the 4:3 area of the screen the image is painted into (the rest is painted black)
+     */
+    private static Rectangle getImageArea(VideoScreen screen) {
         int width = screen.getWidth();
         int height = screen.getHeight();
-
-        g.setColor(Color.BLACK);
         if (width * 3 > height * 4) { // if wider than 4:3
             int d = (width - height * 4 / 3);
-            x += d / 2;
-            width -= d;
-            g.fillRect(0, 0, d / 2, height);
-            g.fillRect(width + d / 2, 0, (d + 1) / 2, height);
+            return new Rectangle(d / 2, 0, width - d, height);
         } else { // if higher than 4:3
             int d = (height - width * 3 / 4);
-            y += d / 2;
-            height -= d;
-            g.fillRect(0, 0, width, d / 2);
-            g.fillRect(0, height + d / 2, width, (d + 1) / 2);
+            return new Rectangle(0, d / 2, width, height - d);
+        }
+    }
+
+    private static void paintImage(VideoScreen screen, Graphics2D g, Image image) {
+        int width = screen.getWidth();
+        int height = screen.getHeight();
+        Rectangle area = getImageArea(screen);
+
+        g.setColor(Color.BLACK);
+        if (area.x > 0) {
+            g.fillRect(0, 0, area.x, height);
+            g.fillRect(area.x + area.width, 0, width - area.x - area.width, height);
+        } else {
+            g.fillRect(0, 0, width, area.y);
+            g.fillRect(0, area.y + area.height, width, height - area.y - area.height);
         }
         // Waaayyyy tooo slow!!!
         //g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g.drawImage(image, x, y, width, height, null);
+        g.drawImage(image, area.x, area.y, area.width, area.height, null);
     }
 
 }
@@ -8,8 +8,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.locks.LockSupport;
 
 import exmoplay.engine.messages.MediaError;
 
@@ -20,13 +18,18 @@ import exmoplay.engine.messages.MediaError;
  */
 public abstract class Actor implements MessageSendable {
 
-    private final Thread thread;
+    private static final long NO_WAKE_UP = Long.MIN_VALUE;
+
+    private final Scheduler scheduler;
+    private final Scheduler.Runner runner;
     private volatile boolean stopped;
-    private final ConcurrentLinkedQueue<Object> queue;
+    private final Mailbox mailbox;
     private final Actor errorHandler;
     private final Map<Class, List<MessageSendable>> updateReceivers;
 
     private final int idleNanos;
+    // only accessed by the actor itself (NO_WAKE_UP if none is scheduled)
+    private long wakeUpDeadline = NO_WAKE_UP;
 
     public enum Priority {
         MIN(Thread.MIN_PRIORITY),
@@ -39,55 +42,108 @@ public abstract class Actor implements MessageSendable {
         }
     }
 
+    /**
+     * What happens to a message sent to a full mailbox (see {@link Actor#limitMailbox(int, OverflowPolicy)}).
+     */
+    public enum OverflowPolicy {
+        /** the sender waits until there is space (never use for messages an actor sends to itself) */
+        BLOCK,
+        /**
+         * the oldest unprocessed data message is discarded (only for messages that may get lost). Control messages (see
+         * {@link Actor#prioritize(Class...)}) and requests expecting a response are never discarded; if nothing else
+         * is waiting, they are queued beyond the capacity.
+         */
+        DROP_OLDEST,
+        /** the message is not accepted: send() throws a {@link MailboxFullException}, trySend() returns false */
+        REJECT
+    }
+
     protected Actor(Actor errorHandler, int idleNanos, Priority priority) {
+        this(errorHandler, idleNanos, priority, Scheduler.getDefault());
+    }
+
+    /**
+     * @param scheduler decides on which thread(s) this actor runs (the priority is only regarded for dedicated threads)
+     */
+    protected Actor(Actor errorHandler, int idleNanos, Priority priority, Scheduler scheduler) {
         String className = this.getClass().getSimpleName();
         if (className.equals("")) {
             className = "Anonymous Actor";
         }
-        thread = new Thread(new ActorRunnable(), className);
-        thread.setPriority(priority.priorityCode);
-        queue = new ConcurrentLinkedQueue<Object>();
+        mailbox = new Mailbox();
         this.errorHandler = errorHandler;
         updateReceivers = new HashMap<Class, List<MessageSendable>>();
         this.idleNanos = idleNanos;
+        this.scheduler = scheduler;
+        runner = scheduler.createRunner(this, className, priority);
     }
 
-    private class ActorRunnable implements Runnable {
-        @Override
-        public void run() {
-            try {
-                init();
-            } catch (Exception e) {
-                handleException("exception in init()", e);
-                return;
-            }
-            while (!stopped) {
-                Object message = queue.poll();
-
-                if (message != null) {
-                    try {
-                        if (message instanceof RegisterForUpdates) {
-                            handleRegisterForUpdates((RegisterForUpdates) message);
-                        } else {
-                            act(message);
-                        }
-                    } catch (RuntimeException e) {
-                        handleException("Unhandled Exception when processing " + message, e);
-                    }
-                } else {
-                    try {
-                        idle();
-                    } catch (RuntimeException e) {
-                        handleException("Unhandled exception in idle()", e);
-                    }
-                }
+    /**
+     * Runs init(). Called by the runner before any message is processed.
+     * 
+     * @return false if the initialization failed (and the actor must not be run)
+     */
+    final boolean initialize() {
+        try {
+            init();
+            return true;
+        } catch (Exception e) {
+            handleException("exception in init()", e);
+            return false;
+        }
+    }
+
+    /**
+     * Processes the next message in the queue, if there is one.
+     * 
+     * @return false if the queue was empty
+     */
+    final boolean processNextMessage() {
+        Object message = mailbox.poll();
+        if (message == null)
+            return false;
+        try {
+            if (message instanceof RegisterForUpdates) {
+                handleRegisterForUpdates((RegisterForUpdates) message);
+            } else {
+                act(message);
             }
+        } catch (RuntimeException e) {
+            handleException("Unhandled Exception when processing " + message, e);
+        }
+        return true;
+    }
+
+    final void processIdle() {
+        try {
+            idle();
+        } catch (RuntimeException e) {
+            handleException("Unhandled exception in idle()", e);
+        }
+    }
+
+    final void finish() {
+        Object message;
+        while ((message = mailbox.poll()) != null) {
             try {
-                destruct();
+                discard(message);
             } catch (RuntimeException e) {
-                handleException("Unhandled exception in destruct()", e);
+                handleException("Unhandled exception when discarding " + message, e);
             }
         }
+        try {
+            destruct();
+        } catch (RuntimeException e) {
+            handleException("Unhandled exception in destruct()", e);
+        }
+    }
+
+    final boolean isStopped() {
+        return stopped;
+    }
+
+    final boolean hasPendingMessages() {
+        return !mailbox.isEmpty();
     }
 
     /**
@@ -99,13 +155,42 @@ public abstract class Actor implements MessageSendable {
 
     /**
      * Waiting for a while for a new message. This is called when the actor idles. It is overridable so you can do other
-     * processing during the waiting
+     * processing during the waiting. On a pooled scheduler this does not block, but ends the current run of the actor
+     * (it is resumed on the next message or after the idle time), so overriding methods may only rely on idle() being
+     * called again later, not on the time spent inside it. If a wake-up is scheduled, the actor does not wait beyond
+     * it (see {@link #scheduleWakeUp(long)}).
      */
     protected void idle() {
-        if (idleNanos == -1)
-            LockSupport.park();
-        else
-            LockSupport.parkNanos(idleNanos);
+        long nanos = idleNanos;
+        if (wakeUpDeadline != NO_WAKE_UP) {
+            long nanosUntilWakeUp = wakeUpDeadline - System.nanoTime();
+            if (nanosUntilWakeUp <= 0) {
+                // deadline reached: return without waiting, so the caller can do the work that is due
+                wakeUpDeadline = NO_WAKE_UP;
+                return;
+            }
+            if (nanos == -1 || nanosUntilWakeUp < nanos)
+                nanos = nanosUntilWakeUp;
+        }
+        runner.park(nanos);
+    }
+
+    /**
+     * Makes the actor stop idling at the given point in time at the latest (earlier, if a message arrives), so that
+     * time based work in idle() can be done exactly when it is due instead of polling for it. Replaces any previously
+     * scheduled wake-up. Must only be called by the actor itself (from act(), idle() or init()).
+     * 
+     * @param deadlineNanos the point in time in terms of {@link System#nanoTime()}
+     */
+    protected final void scheduleWakeUp(long deadlineNanos) {
+        wakeUpDeadline = deadlineNanos;
+    }
+
+    /**
+     * Cancels the wake-up scheduled with {@link #scheduleWakeUp(long)}, if any.
+     */
+    protected final void cancelWakeUp() {
+        wakeUpDeadline = NO_WAKE_UP;
     }
 
     /**
@@ -122,6 +207,16 @@ public abstract class Actor implements MessageSendable {
 
     }
 
+    /**
+     * Called for each message still waiting when the actor stops (it is not processed anymore). Overriding methods
+     * should answer requests, so that nobody waits for a response forever.
+     * 
+     * @param message the message that is not processed
+     */
+    protected void discard(Object message) {
+
+    }
+
     /**
      * Handling the exception with the built in error handler.
      * 
@@ -136,7 +231,7 @@ public abstract class Actor implements MessageSendable {
      * Starts the actor.
      */
     public final void start() {
-        thread.start();
+        runner.start();
     }
 
     /**
@@ -144,13 +239,13 @@ public abstract class Actor implements MessageSendable {
      */
     public final void stop() {
         stopped = true;
-        LockSupport.unpark(thread);
+        runner.wakeUp();
     }
 
     public final void stopAndWait() {
         stop();
         try {
-            thread.join();
+            runner.awaitTermination();
         } catch (InterruptedException e) {
             // just stop sleeping after interrupt
         }
@@ -162,8 +257,59 @@ public abstract class Actor implements MessageSendable {
      * @param message the message to send
      */
     public final void send(Object message) {
-        queue.add(message);
-        LockSupport.unpark(thread);
+        if (!mailbox.offer(message, true))
+            throw new MailboxFullException("mailbox of " + getClass().getSimpleName() + " is full ("
+                    + mailbox.getCapacity() + " messages), rejected " + message);
+        runner.wakeUp();
+    }
+
+    /**
+     * Like {@link #send(Object)}, but never blocks or throws because the mailbox is full.
+     * 
+     * @param message the message to send
+     * @return false if the message was not accepted because the mailbox is full (not with policy DROP_OLDEST)
+     */
+    public final boolean trySend(Object message) {
+        if (!mailbox.offer(message, false))
+            return false;
+        runner.wakeUp();
+        return true;
+    }
+
+    /**
+     * Limits the number of unprocessed messages. Must be called before the actor is started (and before messages are
+     * sent to it). By default the mailbox is unbounded.
+     * 
+     * @param capacity the maximum number of unprocessed messages
+     * @param policy what happens to messages sent while the mailbox is full
+     */
+    public final void limitMailbox(int capacity, OverflowPolicy policy) {
+        mailbox.limit(capacity, policy);
+    }
+
+    /**
+     * Lets messages of the given types (e.g. seeking or stopping) overtake all other waiting messages. They are still
+     * processed in the order they were sent among themselves. Only use it for messages whose effect does not depend on
+     * being ordered relative to the other messages. Must be called before the actor is started.
+     * 
+     * @param messageTypes the types of control messages (including their subclasses)
+     */
+    public final void prioritize(Class<?>... messageTypes) {
+        mailbox.prioritize(messageTypes);
+    }
+
+    /**
+     * @return the number of messages waiting to be processed (senders can use it to back off)
+     */
+    public final int getQueueDepth() {
+        return mailbox.size();
+    }
+
+    /**
+     * @return the scheduler this actor runs on (e.g. to start related actors on the same scheduler)
+     */
+    public final Scheduler getScheduler() {
+        return scheduler;
     }
 
     /**
@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.actorframework;
+
+/**
+ * A message that makes an unprocessed older message of the same class obsolete (e.g. a newer position to seek to). When
+ * it is sent right after the older one (nothing else was queued in between in the same lane), the older message is
+ * removed from the mailbox and only the result of {@link #conflate(Object)} is queued, so the actor only acts on the
+ * latest one.
+ * 
+ * @author agent
+ */
+public interface Conflating {
+
+    /**
+     * @param older the unprocessed older message of the same class
+     * @return the message replacing both (this or a merge of both), or null if the older message has to be kept
+     */
+    Object conflate(Object older);
+}
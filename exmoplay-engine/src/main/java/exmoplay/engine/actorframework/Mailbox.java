@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.actorframework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import exmoplay.engine.actorframework.Actor.OverflowPolicy;
+import exmoplay.engine.messages.ResponseRequest;
+
+/**
+ * The message queue of an actor. It is unbounded unless a limit is set, in which case the overflow policy decides what
+ * happens to messages sent while it is full. Messages of the control types go into a separate lane that is always
+ * emptied first (FIFO within each lane). Control messages and requests that expect a response are never dropped.
+ *
+ * @author agent
+ */
+final class Mailbox {
+
+    private final ConcurrentLinkedQueue<Object> controlLane = new ConcurrentLinkedQueue<Object>();
+    private final ConcurrentLinkedQueue<Object> dataLane = new ConcurrentLinkedQueue<Object>();
+    private final AtomicInteger depth = new AtomicInteger();
+
+    // only set before the actor is started
+    private volatile List<Class<?>> controlTypes = new ArrayList<Class<?>>();
+    private volatile int capacity = Integer.MAX_VALUE;
+    private volatile OverflowPolicy policy = null;
+    private volatile Semaphore space = null; // one permit per free slot (null if unbounded)
+    // messages admitted beyond the capacity because nothing could be dropped (their slots are not given back)
+    private final AtomicInteger overdraft = new AtomicInteger();
+
+    void limit(int capacity, OverflowPolicy policy) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("mailbox capacity must be at least 1: " + capacity);
+        if (policy == null)
+            throw new IllegalArgumentException("overflow policy must not be null");
+        if (!isEmpty())
+            throw new IllegalStateException("mailbox can only be limited while empty");
+        this.capacity = capacity;
+        this.policy = policy;
+        space = new Semaphore(capacity);
+    }
+
+    void prioritize(Class<?>... messageTypes) {
+        if (!isEmpty())
+            throw new IllegalStateException("control types can only be set while the mailbox is empty");
+        List<Class<?>> types = new ArrayList<Class<?>>(controlTypes);
+        types.addAll(Arrays.asList(messageTypes));
+        controlTypes = types;
+    }
+
+    private ConcurrentLinkedQueue<Object> laneOf(Object message) {
+        for (Class<?> type : controlTypes) {
+            if (type.isInstance(message))
+                return controlLane;
+        }
+        return dataLane;
+    }
+
+    /**
+     * Adds the message, applying the overflow policy if the mailbox is full.
+     *
+     * @param mayBlock whether the BLOCK policy may wait for space (otherwise the message is rejected)
+     * @return false if the message was rejected
+     */
+    boolean offer(Object message, boolean mayBlock) {
+        ConcurrentLinkedQueue<Object> lane = laneOf(message);
+        if (message instanceof Conflating) {
+            message = conflate(lane, (Conflating) message);
+        }
+        Semaphore space = this.space;
+        if (space != null && !space.tryAcquire()) {
+            switch (policy) {
+            case BLOCK:
+                if (!mayBlock)
+                    return false;
+                try {
+                    Scheduler.acquire(space);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+                break;
+            case DROP_OLDEST:
+                if (!dropOldest(space)) {
+                    // only control messages and requests are waiting, they must not get lost
+                    overdraft.incrementAndGet();
+                }
+                break;
+            case REJECT:
+                return false;
+            default:
+                throw new IllegalStateException("unknown overflow policy: " + policy);
+            }
+        }
+        lane.add(message);
+        depth.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Drops the oldest data message that does not expect a response, taking over its slot.
+     * 
+     * @return false if there is neither such a message nor a free slot
+     */
+    private boolean dropOldest(Semaphore space) {
+        while (true) {
+            Object oldest = null;
+            for (Object m : dataLane) {
+                if (!(m instanceof ResponseRequest)) {
+                    oldest = m;
+                    break;
+                }
+            }
+            // if removing fails, the message is already being processed (and its slot may be free now)
+            if (oldest != null && dataLane.remove(oldest)) {
+                depth.decrementAndGet();
+                return true;
+            }
+            if (space.tryAcquire())
+                return true;
+            if (oldest == null)
+                return false;
+        }
+    }
+
+    /**
+     * Gives back the slot of a removed message.
+     */
+    private void freeSlot() {
+        Semaphore space = this.space;
+        if (space == null)
+            return;
+        while (true) {
+            int n = overdraft.get();
+            if (n == 0) {
+                space.release();
+                return;
+            }
+            if (overdraft.compareAndSet(n, n - 1))
+                return;
+        }
+    }
+
+    /**
+     * Removes the last message of the lane, if it is of the same class and the given message replaces it. An older
+     * message followed by other messages is kept, because they could depend on it (e.g. a position, then a seek, then
+     * a speed change must not end at the first position).
+     * 
+     * @return the message to queue instead
+     */
+    private Object conflate(ConcurrentLinkedQueue<Object> lane, Conflating message) {
+        Object older = null;
+        for (Object m : lane) {
+            older = m;
+        }
+        if (older == null || older.getClass() != message.getClass())
+            return message;
+        Object replacement = message.conflate(older);
+        // if removing fails, the older message is already being processed
+        if (replacement == null || !lane.remove(older))
+            return message;
+        depth.decrementAndGet();
+        freeSlot();
+        return replacement;
+    }
+
+    Object poll() {
+        Object message = controlLane.poll();
+        if (message == null)
+            message = dataLane.poll();
+        if (message != null) {
+            depth.decrementAndGet();
+            freeSlot();
+        }
+        return message;
+    }
+
+    boolean isEmpty() {
+        return controlLane.isEmpty() && dataLane.isEmpty();
+    }
+
+    int size() {
+        return depth.get();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+}
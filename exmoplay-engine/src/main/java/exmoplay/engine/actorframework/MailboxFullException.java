@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.actorframework;
+
+/**
+ * Thrown to the sender if a message is sent to a full mailbox with overflow policy
+ * {@link Actor.OverflowPolicy#REJECT}.
+ * 
+ * @author agent
+ */
+public class MailboxFullException extends IllegalStateException {
+
+    public MailboxFullException(String message) {
+        super(message);
+    }
+}
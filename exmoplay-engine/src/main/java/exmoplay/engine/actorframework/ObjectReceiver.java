@@ -29,7 +29,7 @@ public class ObjectReceiver implements MessageSendable {
 
     public Object waitForMessage() {
         try {
-            return objectQueue.take();
+            return Scheduler.take(objectQueue);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
@@ -39,7 +39,7 @@ public class ObjectReceiver implements MessageSendable {
         try {
             List<T> list = new ArrayList<T>();
             for (int i = 0; i < n; i++) {
-                list.add(messageType.cast(objectQueue.take()));
+                list.add(messageType.cast(Scheduler.take(objectQueue)));
             }
             return list;
         } catch (InterruptedException e) {
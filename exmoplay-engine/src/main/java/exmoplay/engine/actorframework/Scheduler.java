@@ -0,0 +1,378 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.actorframework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import exmoplay.engine.actorframework.Actor.Priority;
+
+/**
+ * Decides on which threads actors are run. By default every actor gets its own dedicated (platform) thread, optionally
+ * a virtual thread can be used instead. Alternatively many actors can share a fork-join pool with a fixed number of
+ * threads, where each actor is still guaranteed to process its messages one after the other (never concurrently).
+ * Blocking waits of the actor framework (e.g. {@link ObjectReceiver#waitForMessage()}) let the pool compensate with
+ * additional threads while they block.
+ *
+ * @author agent
+ */
+public abstract class Scheduler {
+
+    private static volatile Scheduler defaultScheduler = dedicatedThreads();
+
+    /**
+     * @return the scheduler used by actors that are not given a scheduler explicitly
+     */
+    public static Scheduler getDefault() {
+        return defaultScheduler;
+    }
+
+    /**
+     * Sets the scheduler used by actors that are not given a scheduler explicitly. Only affects actors created
+     * afterwards.
+     *
+     * @param scheduler the new default scheduler
+     */
+    public static void setDefault(Scheduler scheduler) {
+        if (scheduler == null)
+            throw new IllegalArgumentException("default scheduler must not be null");
+        defaultScheduler = scheduler;
+    }
+
+    /**
+     * @return a scheduler that starts one thread per actor (the original behaviour)
+     */
+    public static Scheduler dedicatedThreads() {
+        return new DedicatedThreadScheduler(false);
+    }
+
+    /**
+     * Like {@link #dedicatedThreads()}, but every actor gets its own virtual thread. Idling, waiting for responses and
+     * other blocking in the actor framework then only occupies a platform thread while the actor is actually running
+     * (native calls, e.g. decoding in Xuggler, still hold on to the carrier thread while they last).
+     *
+     * @return a scheduler that starts one virtual thread per actor
+     */
+    public static Scheduler virtualThreads() {
+        return new DedicatedThreadScheduler(true);
+    }
+
+    /**
+     * @param nThreads the number of threads shared by all actors of this scheduler
+     * @return a scheduler that runs all its actors on a fixed pool of threads
+     */
+    public static Scheduler pooled(int nThreads) {
+        return new PooledScheduler(nThreads);
+    }
+
+    /**
+     * Creates the runner that drives the given actor.
+     */
+    abstract Runner createRunner(Actor actor, String name, Priority priority);
+
+    /**
+     * Releases the threads of this scheduler. Actors still running on it will no longer be served.
+     */
+    public void shutdown() {
+    }
+
+    /**
+     * Drives the message loop of one actor.
+     */
+    interface Runner {
+        void start();
+
+        /**
+         * Makes sure the actor gets to run soon (called after sending a message or stopping).
+         */
+        void wakeUp();
+
+        /**
+         * Called from within the actor when it has nothing to do.
+         *
+         * @param nanos the maximum time to wait or -1 to wait until woken up
+         */
+        void park(long nanos);
+
+        void awaitTermination() throws InterruptedException;
+    }
+
+    private static class DedicatedThreadScheduler extends Scheduler {
+        private final boolean virtual;
+
+        DedicatedThreadScheduler(boolean virtual) {
+            this.virtual = virtual;
+        }
+
+        @Override
+        Runner createRunner(final Actor actor, String name, Priority priority) {
+            Runnable messageLoop = new Runnable() {
+                @Override
+                public void run() {
+                    if (!actor.initialize())
+                        return;
+                    while (!actor.isStopped()) {
+                        if (!actor.processNextMessage()) {
+                            actor.processIdle();
+                        }
+                    }
+                    actor.finish();
+                }
+            };
+            final Thread thread;
+            if (virtual) {
+                // virtual threads always have normal priority
+                thread = Thread.ofVirtual().name(name).unstarted(messageLoop);
+            } else {
+                thread = new Thread(messageLoop, name);
+                thread.setPriority(priority.priorityCode);
+            }
+            return new Runner() {
+                @Override
+                public void start() {
+                    thread.start();
+                }
+
+                @Override
+                public void wakeUp() {
+                    LockSupport.unpark(thread);
+                }
+
+                @Override
+                public void park(long nanos) {
+                    if (nanos == -1)
+                        LockSupport.park();
+                    else
+                        LockSupport.parkNanos(nanos);
+                }
+
+                @Override
+                public void awaitTermination() throws InterruptedException {
+                    thread.join();
+                }
+            };
+        }
+    }
+
+    private static class PooledScheduler extends Scheduler {
+        private final ForkJoinPool executor;
+        private final ScheduledExecutorService timer;
+
+        PooledScheduler(int nThreads) {
+            if (nThreads < 1)
+                throw new IllegalArgumentException("at least one thread is needed: " + nThreads);
+            // async mode, because actor slices are never joined (FIFO suits them better)
+            executor = new ForkJoinPool(nThreads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+            timer = Executors.newSingleThreadScheduledExecutor(new NamedDaemonThreadFactory("Actor Pool Timer"));
+        }
+
+        @Override
+        Runner createRunner(Actor actor, String name, Priority priority) {
+            return new PooledRunner(actor);
+        }
+
+        @Override
+        public void shutdown() {
+            timer.shutdownNow();
+            executor.shutdown();
+        }
+
+        /**
+         * Runs the actor in slices on the pool. A slice ends when the actor wants to idle or after a maximum number of
+         * messages (so other actors on the pool get their turn). The state guarantees that only one slice of an actor
+         * is scheduled at any time.
+         */
+        private class PooledRunner implements Runner, Runnable {
+            private static final int MAX_MESSAGES_PER_SLICE = 64;
+            private static final int IDLE = 0;
+            private static final int SCHEDULED = 1;
+
+            private final Actor actor;
+            private final AtomicInteger state = new AtomicInteger(IDLE);
+            private final CountDownLatch terminated = new CountDownLatch(1);
+            private volatile boolean started = false;
+
+            // only accessed from within slices (which happen one after the other)
+            private boolean initialized = false;
+            private boolean parkRequested = false;
+            private long parkNanos = -1;
+            private ScheduledFuture<?> pendingTimeout = null;
+
+            PooledRunner(Actor actor) {
+                this.actor = actor;
+            }
+
+            @Override
+            public void start() {
+                started = true;
+                wakeUp();
+            }
+
+            @Override
+            public void wakeUp() {
+                // messages sent before start() are just queued (like with a dedicated thread not yet started)
+                if (started && state.compareAndSet(IDLE, SCHEDULED)) {
+                    executor.execute(this);
+                }
+            }
+
+            @Override
+            public void park(long nanos) {
+                parkRequested = true;
+                parkNanos = nanos;
+            }
+
+            @Override
+            public void awaitTermination() throws InterruptedException {
+                if (started)
+                    awaitLatch(terminated);
+            }
+
+            @Override
+            public void run() {
+                if (!initialized) {
+                    initialized = true;
+                    if (!actor.initialize()) {
+                        terminated.countDown();
+                        return;
+                    }
+                }
+                if (pendingTimeout != null) {
+                    pendingTimeout.cancel(false);
+                    pendingTimeout = null;
+                }
+                parkRequested = false;
+                int processed = 0;
+                while (!actor.isStopped() && processed < MAX_MESSAGES_PER_SLICE) {
+                    if (!actor.processNextMessage()) {
+                        actor.processIdle();
+                        if (parkRequested)
+                            break;
+                    }
+                    processed++;
+                }
+                if (actor.isStopped()) {
+                    actor.finish();
+                    terminated.countDown();
+                    return; // stays SCHEDULED, so it will never run again
+                }
+                long parkDeadline = 0;
+                if (parkRequested && parkNanos != -1) {
+                    parkDeadline = System.nanoTime() + parkNanos;
+                    pendingTimeout = timer.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            wakeUp();
+                        }
+                    }, parkNanos, TimeUnit.NANOSECONDS);
+                }
+                state.set(IDLE);
+                // reschedule if the slice was cut short or if messages arrived (or the timeout passed, which is lost if
+                // the timer fired before the state was reset) while finishing the slice
+                if (!parkRequested || actor.hasPendingMessages() || actor.isStopped() || parkNanos != -1
+                        && System.nanoTime() - parkDeadline >= 0) {
+                    wakeUp();
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the given queue to deliver an element. If called on a pool thread, the pool is allowed to start a
+     * replacement thread while blocking, so actors blocking on each other can never starve the pool.
+     */
+    static <T> T take(final BlockingQueue<T> queue) throws InterruptedException {
+        final List<T> taken = new ArrayList<T>(1);
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                if (taken.isEmpty())
+                    taken.add(queue.take());
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                if (taken.isEmpty()) {
+                    T element = queue.poll();
+                    if (element != null)
+                        taken.add(element);
+                }
+                return !taken.isEmpty();
+            }
+        });
+        return taken.get(0);
+    }
+
+    /**
+     * Waits for a permit of the semaphore, allowing the pool to compensate (see {@link #take(BlockingQueue)}).
+     */
+    static void acquire(final Semaphore semaphore) throws InterruptedException {
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            private boolean acquired = false;
+
+            @Override
+            public boolean block() throws InterruptedException {
+                if (!acquired) {
+                    semaphore.acquire();
+                    acquired = true;
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                if (!acquired)
+                    acquired = semaphore.tryAcquire();
+                return acquired;
+            }
+        });
+    }
+
+    /**
+     * Waits for the latch to open, allowing the pool to compensate (see {@link #take(BlockingQueue)}).
+     */
+    static void awaitLatch(final CountDownLatch latch) throws InterruptedException {
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                latch.await();
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return latch.getCount() == 0;
+            }
+        });
+    }
+
+    private static class NamedDaemonThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedDaemonThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, name + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
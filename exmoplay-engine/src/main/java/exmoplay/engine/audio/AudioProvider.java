@@ -39,6 +39,14 @@ public interface AudioProvider {
      */
     int getWritableBytes();
 
+    /**
+     * Estimates when data can be written again, so the caller can wait for that instead of polling.
+     * 
+     * @return the milliseconds until {@link #getWritableBytes()} is expected to return more than 0 (0 if it already
+     *         does), or -1 if that will not happen by itself (e.g. because playback is stopped)
+     */
+    long getMillisUntilWritable();
+
     /**
      * Writes audio data to the line.
      * 
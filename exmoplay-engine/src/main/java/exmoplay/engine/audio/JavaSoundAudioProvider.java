@@ -87,6 +87,18 @@ public class JavaSoundAudioProvider implements AudioProvider {
         return line.available();
     }
 
+    @Override
+    public long getMillisUntilWritable() {
+        int available = line.available();
+        if (available > 0)
+            return 0;
+        if (!line.isRunning())
+            return -1;
+        // wait until a quarter of the line's buffer has been played
+        int bytesPerSecond = (int) (line.getFormat().getFrameRate() * line.getFormat().getFrameSize());
+        return line.getBufferSize() / 4 * 1000L / bytesPerSecond;
+    }
+
     @Override
     public boolean isPlaying() {
         return line.isRunning();
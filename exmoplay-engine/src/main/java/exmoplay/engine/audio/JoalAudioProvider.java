@@ -59,12 +59,14 @@ public class JoalAudioProvider implements AudioProvider {
     // Buffers hold sound data. There are two of them by default (front/back)
     private int[] buffers = new int[NUM_BUFFERS];
     private boolean[] bufferIsQueued = new boolean[NUM_BUFFERS];
+    private int[] bufferSizes = new int[NUM_BUFFERS];
 
     // Sources are points emitting sound.
     private int[] source = new int[1];
 
     private int format; // OpenAL data format
     private int rate; // sample rate
+    private int bytesPerSecond;
 
     // Position, Velocity, Direction of the source sound.
     private float[] sourcePos = { 0.0f, 0.0f, 0.0f };
@@ -103,6 +105,7 @@ public class JoalAudioProvider implements AudioProvider {
         }
 
         rate = (int) audioFormat.getSampleRate();
+        bytesPerSecond = rate * numChannels * numBytesPerSample;
 
         if (DEBUG) {
         System.err.println("DEBUG: #Buffers: " + NUM_BUFFERS);
@@ -330,6 +333,20 @@ public class JoalAudioProvider implements AudioProvider {
         return MAX_BUFFER_SIZE;
     }
 
+    public long getMillisUntilWritable() {
+        reclaimBufferSpace();
+        if (getWritableBytes_() > 0)
+            return 0;
+        // buffers are only processed while playing
+        if (!actualPlaying)
+            return -1;
+        // the next buffer to be unqueued is the one currently playing
+        int[] byteOffset = new int[1];
+        al.alGetSourcei(source[0], AL.AL_BYTE_OFFSET, byteOffset, 0);
+        int remaining = Math.max(0, bufferSizes[bufferUnqueuedNext] - byteOffset[0]);
+        return remaining * 1000L / bytesPerSecond;
+    }
+
     public int write(byte[] data, int offset, int length) {
         int bytesToWrite = Math.min(getWritableBytes(), length);
 
@@ -340,6 +357,7 @@ public class JoalAudioProvider implements AudioProvider {
             ByteBuffer dataBuffer = ByteBuffer.wrap(data, offset, bytesToWrite);
             al.alBufferData(buffers[bufferQueuedNext], format, dataBuffer, bytesToWrite, rate);
             check();
+            bufferSizes[bufferQueuedNext] = bytesToWrite;
             if (DEBUG) {
             System.err.println("Wrote " + bytesToWrite + " bytes to buffer " + bufferQueuedNext);
             }
@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+public class AdaptiveResolution {
+
+    public final boolean enabled;
+
+    public AdaptiveResolution(boolean enabled) {
+        this.enabled = enabled;
+    }
+}
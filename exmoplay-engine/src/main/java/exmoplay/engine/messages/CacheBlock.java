@@ -4,32 +4,52 @@
  */
 package exmoplay.engine.messages;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import exmoplay.engine.messages.CachedFrame.CachedFrameState;
 
-public class CacheBlock implements Comparable<CacheBlock> {
+public class CacheBlock {
 
     public CacheBlock(int index, CachedFrame[] frames) {
         this.index = index;
         this.frames = frames;
+        this.length = frames.length;
+        for (CachedFrame frame : frames) {
+            frame.block = this;
+        }
+        releasedBag = new RecyclingBag(this);
     }
 
     public int index;
     public final CachedFrame[] frames;
 
     public long baseSeqNum;
-    public long timestamp;
-    public int usageCount;
+    public int length; // number of frames used (blocks end early at the start of the next GOP)
+    // links of the frame cache's LRU list of unused blocks (null if not in the list)
+    public CacheBlock lruPrev;
+    public CacheBlock lruNext;
+    /**
+     * How many times frames of this block were handed out and not yet recycled. Only increased by the frame cache, but
+     * decreased by whoever recycles a frame (see {@link #release()}).
+     */
+    public final AtomicInteger usageCount = new AtomicInteger();
     public CachedFrameState state;
 
-    @Override
-    public int compareTo(CacheBlock o) {
-        long diff = timestamp - o.timestamp;
-        if (diff < 0) {
-            return -1;
-        } else if (diff > 0) {
-            return 1;
-        } else {
-            return 0;
+    // sent to the cache when the usage count drops to zero (no need to allocate a new one each time)
+    final RecyclingBag releasedBag;
+
+    /**
+     * Gives back one usage. Lock-free, so it can be called from any thread.
+     * 
+     * @return the remaining usage count, or -1 if there was no usage left to give back
+     */
+    public int release() {
+        while (true) {
+            int count = usageCount.get();
+            if (count == 0)
+                return -1;
+            if (usageCount.compareAndSet(count, count - 1))
+                return count - 1;
         }
     }
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+/**
+ * The effective capacity of the frame cache under its current budget.
+ */
+public class CacheInfo {
+
+    public final long maxBytes; // the budget
+    public final int nBlocks;
+    public final int capacityFrames;
+    public final int frameBytes; // -1 until the first frame was decoded
+    public final long capacityBytes; // -1 until the first frame was decoded
+    // frames decoded again when playing backwards, because the GOP before a block did not fit into the unused blocks
+    public final long framesDecodedAgain;
+
+    public CacheInfo(long maxBytes, int nBlocks, int capacityFrames, int frameBytes, long framesDecodedAgain) {
+        this.maxBytes = maxBytes;
+        this.nBlocks = nBlocks;
+        this.capacityFrames = capacityFrames;
+        this.frameBytes = frameBytes;
+        this.capacityBytes = frameBytes == -1 ? -1 : (long) capacityFrames * frameBytes;
+        this.framesDecodedAgain = framesDecodedAgain;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInfo [maxBytes=" + maxBytes + ", nBlocks=" + nBlocks + ", capacityFrames=" + capacityFrames
+                + ", frameBytes=" + frameBytes + ", capacityBytes=" + capacityBytes + ", framesDecodedAgain="
+                + framesDecodedAgain + "]";
+    }
+}
@@ -0,0 +1,14 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+import exmoplay.engine.actorframework.MessageSendable;
+
+public class CacheInfoRequest extends ResponseRequest {
+
+    public CacheInfoRequest(MessageSendable responseTo) {
+        super(responseTo);
+    }
+}
@@ -9,8 +9,7 @@ import exmoplay.engine.FrameCache;
 
 public class CachedFrame {
 
-    public CachedFrame(int index, FrameCache cache) {
-        this.index = index;
+    public CachedFrame(FrameCache cache) {
         this.cache = cache;
     }
 
@@ -34,10 +33,11 @@ public class CachedFrame {
     }
 
     public final FrameCache cache;
-    public final int index; // index of CacheBlock it is part of
+    CacheBlock block; // the block it is part of (set by the block)
 
     public long seqNum;
     public MediaFrame frame;
+    public boolean keyFrameOnly; // read for scrubbing (see KeyFrameRequest), not cached
 
     //public long timestamp;
     //public int usageCount;
@@ -55,7 +55,16 @@ public class CachedFrame {
         }
     }*/
 
+    /**
+     * Gives the frame back for reuse. Only when the last usage of its block is given back, the cache is notified.
+     */
     public void recycle() {
-        cache.send(new RecyclingBag(this));
+        int remaining = block.release();
+        if (remaining == 0) {
+            cache.send(block.releasedBag);
+        } else if (remaining < 0) {
+            System.err.println("WARN: recycled frame " + seqNum + " whose block was already fully returned (block index "
+                    + block.index + ")");
+        }
     }
 }
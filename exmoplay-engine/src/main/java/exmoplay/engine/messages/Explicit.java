@@ -6,9 +6,9 @@ package exmoplay.engine.messages;
 
 public class Explicit<T> {
 
-    public final T _;
+    public final T value;
 
-    public <U extends T> Explicit(U _) {
-        this._ = _;
+    public <U extends T> Explicit(U value) {
+        this.value = value;
     }
 }
@@ -8,10 +8,14 @@ import exmoplay.engine.actorframework.MessageSendable;
 
 public class FetchFrames extends ResponseRequest {
 
-    public final CacheBlock block;
+    public final CacheBlock[] blocks; // consecutive blocks (decoded in one pass)
 
     public FetchFrames(MessageSendable responseTo, CacheBlock block) {
+        this(responseTo, new CacheBlock[] { block });
+    }
+
+    public FetchFrames(MessageSendable responseTo, CacheBlock[] blocks) {
         super(responseTo);
-        this.block = block;
+        this.blocks = blocks;
     }
 }
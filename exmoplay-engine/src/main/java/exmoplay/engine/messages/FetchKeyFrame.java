@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+import exmoplay.engine.actorframework.MessageSendable;
+
+public class FetchKeyFrame extends ResponseRequest {
+
+    public final CacheBlock block; // only the first frame is used
+    public final long seqNum; // the key frame at or before it is read
+    public final MessageSendable frameResponseTo; // receives the frame (after the block was sent back)
+
+    public FetchKeyFrame(MessageSendable responseTo, CacheBlock block, long seqNum, MessageSendable frameResponseTo) {
+        super(responseTo);
+        this.block = block;
+        this.seqNum = seqNum;
+        this.frameResponseTo = frameResponseTo;
+    }
+}
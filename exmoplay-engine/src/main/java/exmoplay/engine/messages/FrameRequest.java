@@ -11,11 +11,18 @@ public class FrameRequest extends ResponseRequest {
     public final long seqNum;
     public final int usageCount;
     public final boolean onlyIfFreeResources;
+    public final boolean backward; // playing backwards (the frames before are requested next)
 
     public FrameRequest(long seqNum, int usageCount, boolean onlyIfFreeResources, MessageSendable responseTo) {
+        this(seqNum, usageCount, onlyIfFreeResources, false, responseTo);
+    }
+
+    public FrameRequest(long seqNum, int usageCount, boolean onlyIfFreeResources, boolean backward,
+            MessageSendable responseTo) {
         super(responseTo);
         this.seqNum = seqNum;
         this.usageCount = usageCount;
         this.onlyIfFreeResources = onlyIfFreeResources;
+        this.backward = backward;
     }
 }
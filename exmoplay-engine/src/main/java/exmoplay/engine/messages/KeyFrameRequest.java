@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+import exmoplay.engine.actorframework.Conflating;
+import exmoplay.engine.actorframework.MessageSendable;
+
+/**
+ * Requests a frame for scrubbing: the exact frame if it is cached, otherwise the key frame before it (decoding only the
+ * key frame is much faster than decoding up to the exact frame in long GOPs).
+ */
+public class KeyFrameRequest extends ResponseRequest implements Conflating {
+
+    public final long seqNum;
+    public final int usageCount;
+
+    public KeyFrameRequest(long seqNum, int usageCount, MessageSendable responseTo) {
+        super(responseTo);
+        this.seqNum = seqNum;
+        this.usageCount = usageCount;
+    }
+
+    @Override
+    public Object conflate(Object older) {
+        // only the latest scrub position is of interest
+        return this;
+    }
+}
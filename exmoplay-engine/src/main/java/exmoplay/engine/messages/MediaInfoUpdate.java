@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+import java.io.File;
+
+import exmoplay.access.MediaInfo;
+import exmoplay.engine.actorframework.Conflating;
+
+/**
+ * The media info of a video that covers more of it than before (sent while the video is still being analyzed).
+ */
+public class MediaInfoUpdate implements Conflating {
+
+    public final File mediaFile;
+    public final MediaInfo mediaInfo;
+
+    public MediaInfoUpdate(File mediaFile, MediaInfo mediaInfo) {
+        this.mediaFile = mediaFile;
+        this.mediaInfo = mediaInfo;
+    }
+
+    @Override
+    public Object conflate(Object older) {
+        // the newer one covers everything the older one did
+        return ((MediaInfoUpdate) older).mediaFile.equals(mediaFile) ? this : null;
+    }
+}
@@ -15,6 +15,7 @@ public class NewVideo {
     public final Long initialPosition; // in milliseconds
     public final Long positionMin;
     public final Long positionMax;
+    public final Long cacheMaxBytes; // null to keep the current budget of the frame cache
 
     public NewVideo(File mediaFile, MediaInfo mediaInfo) {
         this(mediaFile, mediaInfo, null);
@@ -29,11 +30,17 @@ public class NewVideo {
     }
 
     public NewVideo(File mediaFile, MediaInfo mediaInfo, Long initialPosition, Long positionMin, Long positionMax) {
+        this(mediaFile, mediaInfo, initialPosition, positionMin, positionMax, null);
+    }
+
+    public NewVideo(File mediaFile, MediaInfo mediaInfo, Long initialPosition, Long positionMin, Long positionMax,
+            Long cacheMaxBytes) {
         this.videoFile = mediaFile;
         this.mediaInfo = mediaInfo;
         this.initialPosition = initialPosition;
         this.positionMin = positionMin;
         this.positionMax = positionMax;
+        this.cacheMaxBytes = cacheMaxBytes;
     }
 
 }
@@ -0,0 +1,19 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+import java.awt.Dimension;
+
+/**
+ * The size of the frames a frame fetcher creates from now on.
+ */
+public class OutputSize {
+
+    public final Dimension size;
+
+    public OutputSize(Dimension size) {
+        this.size = size;
+    }
+}
@@ -0,0 +1,16 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+import exmoplay.engine.ui.VideoScreen;
+
+public class ScreenResized {
+
+    public final VideoScreen screen;
+
+    public ScreenResized(VideoScreen screen) {
+        this.screen = screen;
+    }
+}
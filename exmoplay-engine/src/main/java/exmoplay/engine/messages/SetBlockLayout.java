@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+import exmoplay.engine.BlockLayout;
+import exmoplay.engine.actorframework.Conflating;
+
+/**
+ * Replaces the block layout of the frame cache (when more key frames of the video are known).
+ */
+public class SetBlockLayout implements Conflating {
+
+    public final BlockLayout layout;
+
+    public SetBlockLayout(BlockLayout layout) {
+        this.layout = layout;
+    }
+
+    @Override
+    public Object conflate(Object older) {
+        return this;
+    }
+}
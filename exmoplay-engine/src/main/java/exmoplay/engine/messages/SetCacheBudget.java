@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+import exmoplay.engine.actorframework.Conflating;
+
+public class SetCacheBudget implements Conflating {
+
+    public final long maxBytes;
+
+    public SetCacheBudget(long maxBytes) {
+        if (maxBytes <= 0)
+            throw new IllegalArgumentException("cache budget must be positive: " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public Object conflate(Object older) {
+        return this;
+    }
+}
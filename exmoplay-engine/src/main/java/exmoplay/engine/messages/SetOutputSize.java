@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+import java.awt.Dimension;
+
+import exmoplay.engine.actorframework.Actor;
+import exmoplay.engine.actorframework.Conflating;
+
+/**
+ * Sets the largest size the decoded frames are needed in (the size of the area they are shown in).
+ */
+public class SetOutputSize implements Conflating {
+
+    public final Dimension maxSize; // null for the size of the video
+    public final Actor responseTo; // receives the resulting OutputSize (may be null)
+
+    public SetOutputSize(Dimension maxSize) {
+        this(maxSize, null);
+    }
+
+    public SetOutputSize(Dimension maxSize, Actor responseTo) {
+        this.maxSize = maxSize == null ? null : new Dimension(maxSize);
+        this.responseTo = responseTo;
+    }
+
+    @Override
+    public Object conflate(Object older) {
+        return this;
+    }
+}
@@ -4,17 +4,31 @@
  */
 package exmoplay.engine.messages;
 
-public class SetPosition {
+import exmoplay.engine.actorframework.Conflating;
+
+public class SetPosition implements Conflating {
 
     public final long position;
     public final boolean animated;
+    public final boolean scrubbing; // the key frame before the position is enough (if the player is stopped)
 
     public SetPosition(long position) {
         this(position, false);
     }
 
     public SetPosition(long position, boolean animated) {
+        this(position, animated, false);
+    }
+
+    public SetPosition(long position, boolean animated, boolean scrubbing) {
         this.position = position;
         this.animated = animated;
+        this.scrubbing = scrubbing;
+    }
+
+    @Override
+    public Object conflate(Object older) {
+        // only the latest position is of interest
+        return this;
     }
 }
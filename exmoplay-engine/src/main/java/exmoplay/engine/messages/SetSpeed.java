@@ -4,11 +4,18 @@
  */
 package exmoplay.engine.messages;
 
-public class SetSpeed {
+import exmoplay.engine.actorframework.Conflating;
+
+public class SetSpeed implements Conflating {
 
     public final double newSpeed;
 
     public SetSpeed(double newSpeed) {
         this.newSpeed = newSpeed;
     }
+
+    @Override
+    public Object conflate(Object older) {
+        return this;
+    }
 }
@@ -4,9 +4,10 @@
  */
 package exmoplay.engine.messages;
 
+import exmoplay.engine.actorframework.Conflating;
 import exmoplay.engine.actorframework.MessageSendable;
 
-public class StatusRequest extends ResponseRequest {
+public class StatusRequest extends ResponseRequest implements Conflating {
 
     public final Explicit<Long> position;
     public final Explicit<Long> positionMin;
@@ -44,4 +45,21 @@ public class StatusRequest extends ResponseRequest {
         this.speed = speed;
         this.mute = mute;
     }
+
+    /**
+     * Merges the older request into this one (values set in this one take precedence). An older request that expects
+     * a response is kept.
+     */
+    @Override
+    public Object conflate(Object older) {
+        StatusRequest o = (StatusRequest) older;
+        if (o.responseTo != null)
+            return null;
+        return new StatusRequest(latest(position, o.position), latest(positionMin, o.positionMin), latest(positionMax,
+                o.positionMax), latest(speed, o.speed), latest(mute, o.mute), responseTo);
+    }
+
+    private static <T> Explicit<T> latest(Explicit<T> newer, Explicit<T> older) {
+        return newer != null ? newer : older;
+    }
 }
@@ -0,0 +1,24 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+import exmoplay.engine.actorframework.Conflating;
+import exmoplay.engine.actorframework.MessageSendable;
+
+public class ThumbnailRequest extends ResponseRequest implements Conflating {
+
+    public final long position; // in milliseconds
+
+    public ThumbnailRequest(long position, MessageSendable responseTo) {
+        super(responseTo);
+        this.position = position;
+    }
+
+    @Override
+    public Object conflate(Object older) {
+        // only the latest position of the same requester is of interest (e.g. when hovering)
+        return ((ThumbnailRequest) older).responseTo == responseTo ? this : null;
+    }
+}
@@ -0,0 +1,18 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.messages;
+
+import java.awt.Image;
+
+public class ThumbnailResponse {
+
+    public final Image image; // null if there is no thumbnail yet
+    public final long position; // of the thumbnail in milliseconds (-1 if none)
+
+    public ThumbnailResponse(Image image, long position) {
+        this.image = image;
+        this.position = position;
+    }
+}
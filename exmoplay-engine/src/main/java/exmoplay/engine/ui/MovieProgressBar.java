@@ -6,13 +6,23 @@ package exmoplay.engine.ui;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Point;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 
+import javax.swing.ImageIcon;
 import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.Popup;
+import javax.swing.PopupFactory;
+import javax.swing.SwingUtilities;
 
+import exmoplay.engine.actorframework.Actor;
 import exmoplay.engine.actorframework.MessageSendable;
 import exmoplay.engine.messages.SetPosition;
+import exmoplay.engine.messages.ThumbnailRequest;
+import exmoplay.engine.messages.ThumbnailResponse;
 
 public class MovieProgressBar extends JComponent {
 
@@ -21,6 +31,9 @@ public class MovieProgressBar extends JComponent {
     private static final int FIFTH = SIZE / 5;
 
     private static final int MIN_MILLIS_BETWEEN_REQUESTS = 50;
+    // while dragging, skip positions as long as the controller has more messages than this waiting
+    private static final int MAX_CONTROLLER_QUEUE_DEPTH = 4;
+    private static final int THUMBNAIL_GAP = 4; // between the thumbnail and the bar
 
     private double barMinValue = 0.0;
     private double barMaxValue = 0.0;
@@ -31,6 +44,23 @@ public class MovieProgressBar extends JComponent {
 
     private MessageSendable controller;
 
+    // preview of the position under the mouse (while hovering or dragging)
+    private boolean thumbnailWanted = false;
+    private int thumbnailX; // mouse position of the latest request
+    private Popup thumbnailPopup = null;
+    // the same receiver for all requests, so that older requests are conflated (only the latest one is answered)
+    private final MessageSendable thumbnailReceiver = new MessageSendable() {
+        @Override
+        public void send(final Object message) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    showThumbnail(((ThumbnailResponse) message).image);
+                }
+            });
+        }
+    };
+
     public MovieProgressBar(MessageSendable controller) {
         this.controller = controller;
         setOpaque(true);
@@ -43,14 +73,27 @@ public class MovieProgressBar extends JComponent {
                 draggingBarPosition = true;
             }
 
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                requestThumbnail(e.getX());
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                if (!draggingBarPosition)
+                    hideThumbnail();
+            }
+
             @Override
             public void mouseDragged(MouseEvent e) {
                 // TODO move position, if cursor was on position mark
                 if (draggingBarPosition) {
+                    // shown right away, the frame of the position follows
+                    requestThumbnail(e.getX());
                     long currentTime = System.currentTimeMillis();
-                    if (currentTime > lastDragMessageSent + MIN_MILLIS_BETWEEN_REQUESTS) {
+                    if (currentTime > lastDragMessageSent + MIN_MILLIS_BETWEEN_REQUESTS && !isControllerBusy()) {
                         lastDragMessageSent = currentTime;
-                        movePosition(e.getX());
+                        movePosition(e.getX(), true);
                     }
                 }
             }
@@ -59,7 +102,10 @@ public class MovieProgressBar extends JComponent {
             public void mouseReleased(MouseEvent e) {
                 if (draggingBarPosition) {
                     draggingBarPosition = false;
-                    movePosition(e.getX());
+                    // the exact frame at the end of the drag
+                    movePosition(e.getX(), false);
+                    if (!contains(e.getPoint()))
+                        hideThumbnail();
                 }
             }
         };
@@ -67,7 +113,11 @@ public class MovieProgressBar extends JComponent {
         addMouseMotionListener(mouseAdapter);
     }
 
-    private void movePosition(int x) {
+    private boolean isControllerBusy() {
+        return controller instanceof Actor && ((Actor) controller).getQueueDepth() > MAX_CONTROLLER_QUEUE_DEPTH;
+    }
+
+    private long getMoviePosition(int x) {
         // TODO need to know the whole duration of the media and set it as maximum
         int screenPosition = x - QUARTER;
         int barLength = getWidth() - 2 * QUARTER;
@@ -75,8 +125,42 @@ public class MovieProgressBar extends JComponent {
             screenPosition = 0;
         if (screenPosition > barLength)
             screenPosition = barLength;
-        long moviePosition = (long) (barMinValue + (barMaxValue - barMinValue) * screenPosition / barLength);
-        controller.send(new SetPosition(moviePosition));
+        return (long) (barMinValue + (barMaxValue - barMinValue) * screenPosition / barLength);
+    }
+
+    private void requestThumbnail(int x) {
+        thumbnailWanted = true;
+        thumbnailX = x;
+        controller.send(new ThumbnailRequest(getMoviePosition(x), thumbnailReceiver));
+    }
+
+    private void showThumbnail(Image image) {
+        // the mouse may have left in the meantime
+        if (!thumbnailWanted || image == null || !isShowing())
+            return;
+        if (thumbnailPopup != null)
+            thumbnailPopup.hide();
+        int width = image.getWidth(null);
+        int height = image.getHeight(null);
+        Point location = getLocationOnScreen();
+        int popupX = location.x + Math.max(0, Math.min(getWidth() - width, thumbnailX - width / 2));
+        int popupY = location.y - height - THUMBNAIL_GAP;
+        thumbnailPopup = PopupFactory.getSharedInstance().getPopup(this, new JLabel(new ImageIcon(image)), popupX,
+                popupY);
+        thumbnailPopup.show();
+    }
+
+    private void hideThumbnail() {
+        thumbnailWanted = false;
+        if (thumbnailPopup != null) {
+            thumbnailPopup.hide();
+            thumbnailPopup = null;
+        }
+    }
+
+    private void movePosition(int x, boolean scrubbing) {
+        long moviePosition = getMoviePosition(x);
+        controller.send(new SetPosition(moviePosition, false, scrubbing));
         barPositionValue = moviePosition;
         repaint();
     }
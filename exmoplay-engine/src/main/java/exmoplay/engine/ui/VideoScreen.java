@@ -17,6 +17,7 @@ import exmoplay.engine.actorframework.ObjectReceiver;
 import exmoplay.engine.messages.CurrentScreen;
 import exmoplay.engine.messages.ImageRequest;
 import exmoplay.engine.messages.ImageResponse;
+import exmoplay.engine.messages.ScreenResized;
 
 @SuppressWarnings("serial")
 public class VideoScreen extends JComponent {
@@ -38,6 +39,11 @@ public class VideoScreen extends JComponent {
                 System.out.println("DEBUG: " + VideoScreen.this + " on top now.");
                 VideoScreen.this.videoRenderer.send(new CurrentScreen(VideoScreen.this));
             }
+
+            @Override
+            public void componentResized(ComponentEvent e) {
+                VideoScreen.this.videoRenderer.send(new ScreenResized(VideoScreen.this));
+            }
         });
     }
 
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import exmoplay.engine.messages.CacheBlock;
+import exmoplay.engine.messages.CachedFrame;
+
+public class BlockLRUTest {
+
+    private static CacheBlock[] createBlocks(BlockLRU lru, int n) {
+        CacheBlock[] blocks = new CacheBlock[n];
+        for (int i = 0; i < n; i++) {
+            blocks[i] = new CacheBlock(i, new CachedFrame[0]);
+            lru.addLast(blocks[i]);
+        }
+        return blocks;
+    }
+
+    /**
+     * Checks the order by polling all blocks.
+     */
+    private static void assertOrder(BlockLRU lru, CacheBlock... expected) {
+        Assert.assertEquals(expected.length, lru.size());
+        for (CacheBlock block : expected) {
+            Assert.assertSame(block, lru.peekFirst());
+            Assert.assertSame(block, lru.pollFirst());
+            Assert.assertFalse(lru.contains(block));
+        }
+        Assert.assertTrue(lru.isEmpty());
+        Assert.assertNull(lru.pollFirst());
+    }
+
+    @Test
+    public void testRemoveHead() {
+        BlockLRU lru = new BlockLRU();
+        CacheBlock[] b = createBlocks(lru, 3);
+        lru.remove(b[0]);
+        Assert.assertFalse(lru.contains(b[0]));
+        assertOrder(lru, b[1], b[2]);
+    }
+
+    @Test
+    public void testRemoveTail() {
+        BlockLRU lru = new BlockLRU();
+        CacheBlock[] b = createBlocks(lru, 3);
+        lru.remove(b[2]);
+        lru.addLast(b[2]);
+        lru.remove(b[2]);
+        assertOrder(lru, b[0], b[1]);
+    }
+
+    @Test
+    public void testRemoveMiddle() {
+        BlockLRU lru = new BlockLRU();
+        CacheBlock[] b = createBlocks(lru, 3);
+        lru.remove(b[1]);
+        Assert.assertNull(b[1].lruPrev);
+        Assert.assertNull(b[1].lruNext);
+        assertOrder(lru, b[0], b[2]);
+    }
+
+    @Test
+    public void testReinsert() {
+        BlockLRU lru = new BlockLRU();
+        CacheBlock[] b = createBlocks(lru, 4);
+        // used again: moves to the end
+        lru.remove(b[1]);
+        lru.addLast(b[1]);
+        // released without content: reused first
+        lru.remove(b[2]);
+        lru.addFirst(b[2]);
+        assertOrder(lru, b[2], b[0], b[3], b[1]);
+    }
+
+    @Test
+    public void testSingleBlock() {
+        BlockLRU lru = new BlockLRU();
+        CacheBlock block = createBlocks(lru, 1)[0];
+        Assert.assertTrue(lru.contains(block));
+        lru.remove(block);
+        Assert.assertTrue(lru.isEmpty());
+        Assert.assertNull(lru.peekFirst());
+        lru.addFirst(block);
+        assertOrder(lru, block);
+    }
+
+    @Test
+    public void testDoubleInsertOrRemove() {
+        BlockLRU lru = new BlockLRU();
+        CacheBlock block = createBlocks(lru, 1)[0];
+        try {
+            lru.addLast(block);
+            Assert.fail("no exception for adding a block twice");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        lru.remove(block);
+        try {
+            lru.remove(block);
+            Assert.fail("no exception for removing a block twice");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
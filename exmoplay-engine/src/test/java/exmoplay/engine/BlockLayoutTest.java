@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlockLayoutTest {
+
+    @Test
+    public void testFixed() {
+        BlockLayout layout = BlockLayout.fixed(8);
+        Assert.assertEquals(0, layout.getBaseSeqNum(0));
+        Assert.assertEquals(0, layout.getBaseSeqNum(7));
+        Assert.assertEquals(8, layout.getBaseSeqNum(8));
+        Assert.assertEquals(800, layout.getBaseSeqNum(807));
+        Assert.assertEquals(8, layout.getLength(8));
+        Assert.assertTrue(layout.isBaseSeqNum(16));
+        Assert.assertFalse(layout.isBaseSeqNum(17));
+        Assert.assertEquals(0, layout.getGopIndex(1000));
+    }
+
+    @Test
+    public void testGopBoundaries() {
+        // GOPs of 8 and 16 frames: blocks of the maximum length that end at the GOPs
+        BlockLayout layout = BlockLayout.keyFrameAligned(new long[] { 0, 8, 24 }, 8);
+        assertBlocks(layout, 0, 8, 16, 24);
+        Assert.assertEquals(0, layout.getGopIndex(7));
+        Assert.assertEquals(1, layout.getGopIndex(8));
+        Assert.assertEquals(1, layout.getGopIndex(23));
+        Assert.assertEquals(2, layout.getGopIndex(24));
+    }
+
+    @Test
+    public void testUnevenGop() {
+        // a GOP of 25 frames is split into 7, 6, 6 and 6 frames
+        BlockLayout layout = BlockLayout.keyFrameAligned(new long[] { 0, 25 }, 8);
+        assertBlocks(layout, 0, 7, 13, 19, 25);
+        Assert.assertFalse(layout.isBaseSeqNum(8));
+        Assert.assertFalse(layout.isBaseSeqNum(24));
+    }
+
+    @Test
+    public void testOpenEndedLastGop() {
+        // the last GOP is split into blocks of the maximum length
+        BlockLayout layout = BlockLayout.keyFrameAligned(new long[] { 0, 10 }, 8);
+        assertBlocks(layout, 0, 5, 10, 18, 26, 34);
+        Assert.assertEquals(1002, layout.getBaseSeqNum(1009));
+        Assert.assertEquals(8, layout.getLength(1002));
+    }
+
+    @Test
+    public void testFramesBeforeFirstKeyFrame() {
+        // the 3 frames before the first key frame are a block of their own
+        BlockLayout layout = BlockLayout.keyFrameAligned(new long[] { 3, 11 }, 8);
+        assertBlocks(layout, 0, 3, 11, 19);
+        Assert.assertEquals(0, layout.getGopIndex(2));
+        Assert.assertEquals(1, layout.getGopIndex(3));
+    }
+
+    @Test
+    public void testDuplicateKeyFrames() {
+        BlockLayout layout = BlockLayout.keyFrameAligned(new long[] { 0, 0, 6, 6, 12 }, 8);
+        assertBlocks(layout, 0, 6, 12, 20);
+        Assert.assertEquals(1, layout.getGopIndex(6));
+        Assert.assertEquals(2, layout.getGopIndex(12));
+    }
+
+    @Test
+    public void testLengthOfOtherFrame() {
+        try {
+            BlockLayout.keyFrameAligned(new long[] { 0, 25 }, 8).getLength(8);
+            Assert.fail("no exception for a frame inside a block");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Checks the blocks starting at the given seq nums (each ending where the next starts) frame by frame.
+     */
+    private static void assertBlocks(BlockLayout layout, long... starts) {
+        for (int i = 0; i + 1 < starts.length; i++) {
+            Assert.assertTrue("base " + starts[i], layout.isBaseSeqNum(starts[i]));
+            Assert.assertEquals("length of " + starts[i], starts[i + 1] - starts[i], layout.getLength(starts[i]));
+            for (long seqNum = starts[i]; seqNum < starts[i + 1]; seqNum++) {
+                Assert.assertEquals("base of " + seqNum, starts[i], layout.getBaseSeqNum(seqNum));
+                Assert.assertEquals(seqNum == starts[i], layout.isBaseSeqNum(seqNum));
+            }
+        }
+    }
+}
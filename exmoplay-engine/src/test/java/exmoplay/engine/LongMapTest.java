@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LongMapTest {
+
+    // the capacity of a map created with an expected size of 4 (grows on the 5th entry)
+    private static final int CAPACITY = 8;
+
+    /**
+     * Mirrors the hashing of {@link LongMap}, to construct collision chains.
+     */
+    private static int homeSlot(long key, int capacity) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (capacity - 1);
+    }
+
+    /**
+     * @return n keys with the given home slot
+     */
+    private static List<Long> keysWithHomeSlot(int slot, int n) {
+        List<Long> keys = new ArrayList<Long>();
+        for (long key = 0; keys.size() < n; key++) {
+            if (homeSlot(key, CAPACITY) == slot)
+                keys.add(key);
+        }
+        return keys;
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        LongMap<String> map = new LongMap<String>(4);
+        Assert.assertNull(map.put(42, "a"));
+        Assert.assertEquals("a", map.put(42, "b"));
+        Assert.assertEquals("b", map.get(42));
+        Assert.assertTrue(map.containsKey(42));
+        Assert.assertFalse(map.containsKey(43));
+        Assert.assertNull(map.get(43));
+        Assert.assertEquals(1, map.size());
+        Assert.assertNull(map.remove(43));
+        Assert.assertEquals("b", map.remove(42));
+        Assert.assertNull(map.get(42));
+        Assert.assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testRemoveFromMiddleOfChain() {
+        LongMap<Long> map = new LongMap<Long>(4);
+        List<Long> keys = keysWithHomeSlot(2, 4);
+        for (long key : keys) {
+            map.put(key, key);
+        }
+        // the entries after the removed one have to be shifted back to stay reachable
+        map.remove(keys.get(1));
+        Assert.assertNull(map.get(keys.get(1)));
+        Assert.assertEquals(keys.get(0), map.get(keys.get(0)));
+        Assert.assertEquals(keys.get(2), map.get(keys.get(2)));
+        Assert.assertEquals(keys.get(3), map.get(keys.get(3)));
+        Assert.assertEquals(3, map.size());
+        map.put(keys.get(1), keys.get(1));
+        for (long key : keys) {
+            Assert.assertEquals(Long.valueOf(key), map.get(key));
+        }
+    }
+
+    @Test
+    public void testWrapAround() {
+        LongMap<Long> map = new LongMap<Long>(4);
+        // a chain starting in the last slot continues at slot 0, where another key has its home
+        List<Long> keys = keysWithHomeSlot(CAPACITY - 1, 3);
+        long other = keysWithHomeSlot(0, 1).get(0);
+        for (long key : keys) {
+            map.put(key, key);
+        }
+        map.put(other, other);
+        map.remove(keys.get(0));
+        Assert.assertEquals(keys.get(1), map.get(keys.get(1)));
+        Assert.assertEquals(keys.get(2), map.get(keys.get(2)));
+        Assert.assertEquals(Long.valueOf(other), map.get(other));
+        map.remove(keys.get(1));
+        Assert.assertEquals(keys.get(2), map.get(keys.get(2)));
+        Assert.assertEquals(Long.valueOf(other), map.get(other));
+        Assert.assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testGrow() {
+        LongMap<Long> map = new LongMap<Long>(4);
+        for (long key = 0; key < 1000; key++) {
+            map.put(key * 7, key);
+        }
+        Assert.assertEquals(1000, map.size());
+        for (long key = 0; key < 1000; key++) {
+            Assert.assertEquals(Long.valueOf(key), map.get(key * 7));
+            Assert.assertFalse(map.containsKey(key * 7 + 1));
+        }
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(1);
+        LongMap<Long> map = new LongMap<Long>(4);
+        Map<Long, Long> expected = new HashMap<Long, Long>();
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(200);
+            if (random.nextBoolean()) {
+                Assert.assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+            } else {
+                Assert.assertEquals(expected.remove(key), map.remove(key));
+            }
+            Assert.assertEquals(expected.size(), map.size());
+        }
+        for (long key = 0; key < 200; key++) {
+            Assert.assertEquals(expected.get(key), map.get(key));
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.engine.actorframework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import exmoplay.engine.actorframework.Actor.OverflowPolicy;
+import exmoplay.engine.messages.Explicit;
+import exmoplay.engine.messages.ResponseRequest;
+import exmoplay.engine.messages.SetPosition;
+import exmoplay.engine.messages.StatusRequest;
+
+public class MailboxTest {
+
+    private static class Data {
+        final int nr;
+
+        Data(int nr) {
+            this.nr = nr;
+        }
+    }
+
+    private static class Control {
+    }
+
+    private static class Request extends ResponseRequest {
+        Request() {
+            super(null);
+        }
+    }
+
+    /**
+     * Records the order of the messages it processes. The first message blocks it until released, so that the others
+     * can be queued up.
+     */
+    private static class RecordingActor extends Actor {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch done;
+        final List<Object> processed = new ArrayList<Object>();
+
+        RecordingActor(int nMessages) {
+            super(null, -1, Priority.NORM);
+            done = new CountDownLatch(nMessages);
+        }
+
+        @Override
+        protected void act(Object message) {
+            if (processed.isEmpty()) {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            processed.add(message);
+            done.countDown();
+        }
+    }
+
+    @Test
+    public void testConflateConsecutive() {
+        Mailbox mailbox = new Mailbox();
+        mailbox.offer(new SetPosition(10), false);
+        mailbox.offer(new SetPosition(20), false);
+        mailbox.offer(new SetPosition(30), false);
+
+        Assert.assertEquals(1, mailbox.size());
+        Assert.assertEquals(30, ((SetPosition) mailbox.poll()).position);
+        Assert.assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    public void testNoConflateAcrossOtherMessages() {
+        // all in the control lane like in the controller
+        Mailbox mailbox = new Mailbox();
+        mailbox.prioritize(SetPosition.class, StatusRequest.class);
+        mailbox.offer(new StatusRequest(10L, null), false);
+        mailbox.offer(new SetPosition(50), false);
+        mailbox.offer(new StatusRequest(null, null, null, new Explicit<Double>(2.0), null, null), false);
+
+        // the seek in between is kept in order, so the position ends at 50
+        Assert.assertEquals(3, mailbox.size());
+        StatusRequest first = (StatusRequest) mailbox.poll();
+        Assert.assertEquals(Long.valueOf(10), first.position.value);
+        Assert.assertNull(first.speed);
+        Assert.assertEquals(50, ((SetPosition) mailbox.poll()).position);
+        StatusRequest last = (StatusRequest) mailbox.poll();
+        Assert.assertNull(last.position);
+        Assert.assertEquals(Double.valueOf(2.0), last.speed.value);
+        Assert.assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    public void testConflateMergesStatusRequests() {
+        Mailbox mailbox = new Mailbox();
+        mailbox.offer(new StatusRequest(10L, null), false);
+        mailbox.offer(new StatusRequest(null, null, null, new Explicit<Double>(2.0), null, null), false);
+
+        Assert.assertEquals(1, mailbox.size());
+        StatusRequest merged = (StatusRequest) mailbox.poll();
+        Assert.assertEquals(Long.valueOf(10), merged.position.value);
+        Assert.assertEquals(Double.valueOf(2.0), merged.speed.value);
+    }
+
+    @Test
+    public void testControlBeforeSaturatedData() throws Exception {
+        int nData = 1000;
+        RecordingActor actor = new RecordingActor(nData + 3);
+        actor.prioritize(Control.class);
+        actor.start();
+        try {
+            actor.send(new Data(-1)); // blocks the actor
+            Assert.assertTrue(actor.blocked.await(10, TimeUnit.SECONDS));
+            for (int i = 0; i < nData; i++) {
+                actor.send(new Data(i));
+            }
+            Control first = new Control();
+            Control second = new Control();
+            actor.send(first);
+            actor.send(second);
+            actor.release.countDown();
+            Assert.assertTrue(actor.done.await(10, TimeUnit.SECONDS));
+
+            // the control messages overtake all waiting data, in the order they were sent
+            Assert.assertSame(first, actor.processed.get(1));
+            Assert.assertSame(second, actor.processed.get(2));
+            // data stays in order
+            for (int i = 0; i < nData; i++) {
+                Assert.assertEquals(i, ((Data) actor.processed.get(i + 3)).nr);
+            }
+        } finally {
+            actor.stopAndWait();
+        }
+    }
+
+    @Test
+    public void testDiscardOnStop() throws Exception {
+        final List<Object> discarded = new ArrayList<Object>();
+        RecordingActor actor = new RecordingActor(1) {
+            @Override
+            protected void discard(Object message) {
+                discarded.add(message);
+            }
+        };
+        actor.start();
+        actor.send(new Data(0)); // blocks the actor
+        Assert.assertTrue(actor.blocked.await(10, TimeUnit.SECONDS));
+        actor.send(new Data(1));
+        actor.send(new Data(2));
+        actor.stop();
+        actor.release.countDown();
+        actor.stopAndWait();
+
+        // the messages still waiting are handed to discard() instead of being lost silently
+        Assert.assertEquals(1, actor.processed.size());
+        Assert.assertEquals(2, discarded.size());
+        Assert.assertEquals(1, ((Data) discarded.get(0)).nr);
+        Assert.assertEquals(2, ((Data) discarded.get(1)).nr);
+    }
+
+    @Test
+    public void testReject() {
+        Mailbox mailbox = new Mailbox();
+        mailbox.limit(2, OverflowPolicy.REJECT);
+        Assert.assertTrue(mailbox.offer(new Data(0), true));
+        Assert.assertTrue(mailbox.offer(new Data(1), true));
+        Assert.assertFalse(mailbox.offer(new Data(2), true));
+        Assert.assertEquals(2, mailbox.size());
+
+        Assert.assertEquals(0, ((Data) mailbox.poll()).nr);
+        Assert.assertTrue(mailbox.offer(new Data(3), false));
+        Assert.assertFalse(mailbox.offer(new Data(4), false));
+        Assert.assertEquals(1, ((Data) mailbox.poll()).nr);
+        Assert.assertEquals(3, ((Data) mailbox.poll()).nr);
+        Assert.assertTrue(mailbox.isEmpty());
+        Assert.assertEquals(0, mailbox.size());
+    }
+
+    @Test
+    public void testDropOldestKeepsControlAndRequests() {
+        Mailbox mailbox = new Mailbox();
+        mailbox.prioritize(Control.class);
+        mailbox.limit(3, OverflowPolicy.DROP_OLDEST);
+        Control control = new Control();
+        Request request = new Request();
+        mailbox.offer(control, true);
+        mailbox.offer(request, true);
+        mailbox.offer(new Data(0), true);
+        // only the data can be dropped
+        Assert.assertTrue(mailbox.offer(new Data(1), true));
+        Assert.assertTrue(mailbox.offer(new Data(2), false));
+        Assert.assertEquals(3, mailbox.size());
+
+        Assert.assertSame(control, mailbox.poll());
+        Assert.assertSame(request, mailbox.poll());
+        Assert.assertEquals(2, ((Data) mailbox.poll()).nr);
+        Assert.assertTrue(mailbox.isEmpty());
+        Assert.assertEquals(0, mailbox.size());
+    }
+
+    @Test
+    public void testDropOldestOverCapacity() {
+        Mailbox mailbox = new Mailbox();
+        mailbox.prioritize(Control.class);
+        mailbox.limit(2, OverflowPolicy.DROP_OLDEST);
+        // nothing can be dropped, so the mailbox temporarily holds more than its capacity
+        mailbox.offer(new Control(), true);
+        mailbox.offer(new Request(), true);
+        mailbox.offer(new Control(), true);
+        Assert.assertEquals(3, mailbox.size());
+        while (mailbox.poll() != null) {
+        }
+        Assert.assertEquals(0, mailbox.size());
+
+        // the capacity is back to 2 (the slot of the extra message was not given back)
+        mailbox.offer(new Data(0), true);
+        mailbox.offer(new Data(1), true);
+        mailbox.offer(new Data(2), true);
+        Assert.assertEquals(2, mailbox.size());
+        Assert.assertEquals(1, ((Data) mailbox.poll()).nr);
+        Assert.assertEquals(2, ((Data) mailbox.poll()).nr);
+        Assert.assertTrue(mailbox.isEmpty());
+    }
+
+    @Test
+    public void testBlockReleasesSender() throws Exception {
+        final Mailbox mailbox = new Mailbox();
+        mailbox.limit(1, OverflowPolicy.BLOCK);
+        Assert.assertTrue(mailbox.offer(new Data(0), true));
+        // trySend never blocks
+        Assert.assertFalse(mailbox.offer(new Data(1), false));
+
+        final CountDownLatch sent = new CountDownLatch(1);
+        Thread sender = new Thread() {
+            @Override
+            public void run() {
+                mailbox.offer(new Data(2), true);
+                sent.countDown();
+            }
+        };
+        sender.start();
+        Assert.assertFalse(sent.await(100, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1, mailbox.size());
+
+        Assert.assertEquals(0, ((Data) mailbox.poll()).nr);
+        Assert.assertTrue(sent.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(1, mailbox.size());
+        Assert.assertEquals(2, ((Data) mailbox.poll()).nr);
+        Assert.assertTrue(mailbox.isEmpty());
+        sender.join();
+    }
+
+    @Test
+    public void testBlockedSenderInterrupted() throws Exception {
+        final Mailbox mailbox = new Mailbox();
+        mailbox.limit(1, OverflowPolicy.BLOCK);
+        mailbox.offer(new Data(0), true);
+
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+        Thread sender = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    mailbox.offer(new Data(1), true);
+                } catch (RuntimeException e) {
+                    interrupted.set(Thread.currentThread().isInterrupted());
+                }
+            }
+        };
+        sender.start();
+        Thread.sleep(100);
+        sender.interrupt();
+        sender.join(10000);
+
+        // the interrupt flag is restored and the message is not queued
+        Assert.assertTrue(interrupted.get());
+        Assert.assertEquals(1, mailbox.size());
+    }
+}
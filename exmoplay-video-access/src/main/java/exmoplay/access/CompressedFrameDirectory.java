@@ -10,19 +10,32 @@ import java.util.List;
 public class CompressedFrameDirectory {
 
     public static class Video {
-        private int[] compressedTimestamps;
-        private int[] compressedKeyFrames;
+        // package private for storing them (see MediaInfoStore)
+        final int[] compressedTimestamps;
+        final int[] compressedKeyFrames;
 
-        private Video(int[] compressedTimestamps, int[] compressedKeyFrames) {
+        Video(int[] compressedTimestamps, int[] compressedKeyFrames) {
             this.compressedTimestamps = compressedTimestamps;
             this.compressedKeyFrames = compressedKeyFrames;
         }
 
+        /**
+         * @return the timestamps of all pictures (indexed by frame number)
+         */
+        public long[] decompressTimestamps() {
+            return longUndiff(uncompress(compressedTimestamps));
+        }
+
+        /**
+         * @return the frame numbers of the key pictures (ascending)
+         */
+        public int[] decompressKeyFrames() {
+            return undiff(uncompress(compressedKeyFrames));
+        }
+
         public List<MediaInfo.VideoPictureInfo> decompress() {
-            int[] diffedTimestamps = uncompress(compressedTimestamps);
-            int[] diffedKeyFrames = uncompress(compressedKeyFrames);
-            long[] timestamps = longUndiff(diffedTimestamps);
-            int[] keyFrames = undiff(diffedKeyFrames);
+            long[] timestamps = decompressTimestamps();
+            int[] keyFrames = decompressKeyFrames();
 
             List<MediaInfo.VideoPictureInfo> ret = new ArrayList<MediaInfo.VideoPictureInfo>(timestamps.length);
             int k = 0;
@@ -60,9 +73,10 @@ public class CompressedFrameDirectory {
     }
 
     public static class Audio {
-        private int[] compressedTimestamps;
-        private int[] compressedSampleOffsets;
-        private int[] compressedSampleLengths;
+        // package private for storing them (see MediaInfoStore)
+        final int[] compressedTimestamps;
+        final int[] compressedSampleOffsets;
+        final int[] compressedSampleLengths;
 
         public Audio(int[] compressedTimestamps, int[] compressedSampleOffsets, int[] compressedSampleLengths) {
             this.compressedTimestamps = compressedTimestamps;
@@ -70,12 +84,25 @@ public class CompressedFrameDirectory {
             this.compressedSampleLengths = compressedSampleLengths;
         }
 
+        public long[] decompressTimestamps() {
+            return longUndiff(uncompress(compressedTimestamps));
+        }
+
+        /**
+         * @return the offsets of the samples (ascending)
+         */
+        public long[] decompressSampleOffsets() {
+            return longUndiff(uncompress(compressedSampleOffsets));
+        }
+
+        public int[] decompressSampleLengths() {
+            return uncompress(compressedSampleLengths);
+        }
+
         public List<MediaInfo.AudioSamplesInfo> decompress() {
-            int[] diffedTimestamps = uncompress(compressedTimestamps);
-            int[] diffedSampleOffsets = uncompress(compressedSampleOffsets);
-            int[] sampleLengths = uncompress(compressedSampleLengths);
-            long[] timestamps = longUndiff(diffedTimestamps);
-            long[] sampleOffsets = longUndiff(diffedSampleOffsets);
+            long[] timestamps = decompressTimestamps();
+            long[] sampleOffsets = decompressSampleOffsets();
+            int[] sampleLengths = decompressSampleLengths();
 
             List<MediaInfo.AudioSamplesInfo> ret = new ArrayList<MediaInfo.AudioSamplesInfo>(timestamps.length);
             for (int i = 0; i < timestamps.length; i++) {
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.access;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.xuggle.xuggler.IAudioSamples;
+import com.xuggle.xuggler.ICodec;
+import com.xuggle.xuggler.IContainer;
+import com.xuggle.xuggler.IError;
+import com.xuggle.xuggler.IPacket;
+import com.xuggle.xuggler.IPixelFormat.Type;
+import com.xuggle.xuggler.IStreamCoder;
+import com.xuggle.xuggler.IStreamCoder.Direction;
+import com.xuggle.xuggler.IVideoPicture;
+
+import exmoplay.access.MediaInfo.AudioSamplesInfo;
+import exmoplay.access.MediaInfo.VideoPictureInfo;
+
+/**
+ * A single pass analysis of a video that is done step by step, so that the beginning of the video can already be played
+ * while the rest is still analyzed. Each step reads a number of packets and collects the key frames (from the packets),
+ * the timestamps of the decoded pictures and the offsets of the decoded audio samples.
+ *
+ * Not thread safe (one thread at a time).
+ *
+ * @author agent
+ */
+public class MediaAnalysis {
+    private static final boolean DEBUG = false;
+
+    private static final long END_OF_MEDIA = -541478725L;
+    private static final long OPERATION_NOT_PERMITTED = -1L; // can happen at end of video
+    private static final int PACKETS_PER_STEP = 200;
+    private static final int MAX_DRAINED_PICTURES = 32;
+
+    private final File file;
+    private final MediaInfoStore store;
+    private IContainer container;
+    private IStreamCoder audioDecoder;
+    private IStreamCoder videoDecoder;
+    private int videoStreamIndex = -1;
+    private int audioStreamIndex = -1;
+    private IPacket packet;
+    private IAudioSamples audioSamples;
+    private IVideoPicture videoPicture;
+
+    private final List<Long> keyFrameTimestamps = new ArrayList<Long>();
+    private final List<Double> calculatedFrameRates = new ArrayList<Double>();
+    private final List<AudioSamplesInfo> audioSamplesInfoList = new ArrayList<AudioSamplesInfo>();
+    private final List<VideoPictureInfo> videoPictureInfoList = new ArrayList<VideoPictureInfo>();
+    private int videoPacketCount = 0;
+    private int audioPacketCount = 0;
+    private double videoPacketTimeBase = Double.NaN;
+    private double audioPacketTimeBase = Double.NaN;
+    private double samplesTimeBase = Double.NaN;
+    private int audioFrameSize = -1;
+    private long audioSamplesOffset = 0;
+    private int lastKeyPicture = -1; // index of the last decoded key picture
+    private int keyPictureCount = 0;
+    // the frame rate of the first media info handed out, kept for all later ones (so that the frame numbers of the key
+    // frames do not move while the average of the calculated frame rates still changes)
+    private double videoFrameRate = Double.NaN;
+
+    private boolean done = false;
+    private MediaInfo mediaInfo; // once done
+
+    /**
+     * Opens the video (see {@link MediaAnalyzer#startAnalysis(File, MediaInfoStore)}).
+     *
+     * @param store where the result is stored when done (null for not storing it)
+     */
+    MediaAnalysis(File file, MediaInfoStore store) throws IOException {
+        this.file = file;
+        this.store = store;
+        try {
+            open();
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * An analysis that is done already (e.g. the media info was stored before).
+     */
+    MediaAnalysis(File file, MediaInfo mediaInfo) {
+        this.file = file;
+        this.store = null;
+        this.mediaInfo = mediaInfo;
+        done = true;
+    }
+
+    private void open() throws IOException {
+        container = IContainer.make();
+        if (container.open(new RandomAccessFile(file, "r"), IContainer.Type.READ, null) < 0) {
+            throw new RuntimeException("error opening file");
+        }
+        IStreamCoder audioCoder = null;
+        IStreamCoder videoCoder = null;
+        for (int i = 0; i < container.getNumStreams(); i++) {
+            IStreamCoder coder = container.getStream(i).getStreamCoder();
+            if (coder.getCodecType() == ICodec.Type.CODEC_TYPE_AUDIO) {
+                audioCoder = coder;
+                audioStreamIndex = i;
+            } else if (coder.getCodecType() == ICodec.Type.CODEC_TYPE_VIDEO) {
+                videoCoder = coder;
+                videoStreamIndex = i;
+            } else {
+                System.err.println("Unknown codec of type " + coder.getCodecType());
+            }
+        }
+        if (videoCoder == null)
+            throw new IllegalStateException("no video stream found in " + file);
+
+        if (audioCoder != null) {
+            audioDecoder = IStreamCoder.make(Direction.DECODING, audioCoder);
+            if (audioDecoder.open(null, null) < 0)
+                throw new RuntimeException("error opening audio stream decoder");
+            audioSamples = IAudioSamples.make(4096, audioCoder.getChannels());
+        }
+        videoDecoder = IStreamCoder.make(Direction.DECODING, videoCoder);
+        if (videoDecoder.open(null, null) < 0)
+            throw new RuntimeException("error opening video stream decoder");
+        videoPicture = IVideoPicture.make(videoCoder.getPixelType(), videoCoder.getWidth(), videoCoder.getHeight());
+        packet = IPacket.make();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return true if the whole video was analyzed
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * @return the number of video frames analyzed so far
+     */
+    public long getAnalyzedFrames() {
+        return videoPictureInfoList.size();
+    }
+
+    /**
+     * Reads and analyzes the next packets. When the end is reached, the video is closed and the result stored.
+     */
+    public void analyzeNext() {
+        analyzeNext(PACKETS_PER_STEP);
+    }
+
+    void analyzeNext(int maxPackets) {
+        if (done)
+            return;
+        for (int i = 0; i < maxPackets; i++) {
+            int errorNum;
+            if ((errorNum = container.readNextPacket(packet)) < 0) {
+                if (errorNum == END_OF_MEDIA || errorNum == OPERATION_NOT_PERMITTED) {
+                    finish();
+                    return;
+                } else {
+                    IError error = IError.make(errorNum);
+                    throw new RuntimeException("error reading packet: " + error.getDescription() + "(" + errorNum
+                            + ")");
+                }
+            }
+
+            long timestamp = (long) (packet.getTimeStamp() * packet.getTimeBase().getValue() * 1000000L);
+
+            if (packet.getStreamIndex() == videoStreamIndex) {
+                if (packet.isKey()) {
+                    keyFrameTimestamps.add(timestamp);
+                    if (timestamp > 0) {
+                        double calculatedFrameRate = videoPacketCount * 1000000.0 / (double) timestamp;
+                        calculatedFrameRates.add(calculatedFrameRate);
+                    }
+                }
+                videoPacketCount++;
+
+                if (Double.isNaN(videoPacketTimeBase))
+                    videoPacketTimeBase = packet.getTimeBase().getValue();
+                decodeVideo();
+            } else if (audioDecoder != null && packet.getStreamIndex() == audioStreamIndex) {
+                audioPacketCount++;
+
+                if (Double.isNaN(audioPacketTimeBase))
+                    audioPacketTimeBase = packet.getTimeBase().getValue();
+                decodeAudio();
+            }
+        }
+    }
+
+    private void decodeVideo() {
+        int offset = 0;
+        while (offset < packet.getSize()) {
+            int bytesDecoded = videoDecoder.decodeVideo(videoPicture, packet, offset);
+            if (bytesDecoded < 0)
+                throw new RuntimeException("error decoding video");
+            offset += bytesDecoded;
+
+            if (videoPicture.isComplete())
+                addVideoPicture();
+        }
+    }
+
+    private void addVideoPicture() {
+        if (videoPicture.isKey()) {
+            lastKeyPicture = videoPictureInfoList.size();
+            keyPictureCount++;
+        }
+        videoPictureInfoList.add(new VideoPictureInfo(videoPictureInfoList.size(), videoPicture.getTimeStamp(),
+                videoPicture.isKey()));
+    }
+
+    /**
+     * Gets the pictures the decoder still holds back at the end of the file.
+     */
+    private void drainVideo() {
+        IPacket emptyPacket = IPacket.make();
+        for (int i = 0; i < MAX_DRAINED_PICTURES; i++) {
+            videoPicture.setComplete(false, Type.NONE, -1, -1, -1);
+            if (videoDecoder.decodeVideo(videoPicture, emptyPacket, 0) < 0 || !videoPicture.isComplete())
+                break;
+            addVideoPicture();
+        }
+    }
+
+    private void decodeAudio() {
+        int offset = 0;
+        while (offset < packet.getSize()) {
+            int bytesDecoded = audioDecoder.decodeAudio(audioSamples, packet, offset);
+            if (bytesDecoded < 0) {
+                if (bytesDecoded == MediaAnalyzer.MP2_HEADER_MISSING)
+                    break; // assume it was consumed to skip it
+                throw new RuntimeException("error decoding audio");
+            }
+            offset += bytesDecoded;
+
+            if (audioSamples.isComplete()) {
+                audioSamplesInfoList.add(new AudioSamplesInfo(audioSamplesInfoList.size(), audioSamples.getTimeStamp(),
+                        audioSamplesOffset, audioSamples.getSize()));
+                audioSamplesOffset += audioSamples.getSize();
+
+                samplesTimeBase = audioSamples.getTimeBase().getValue();
+                audioFrameSize = audioSamples.getSize();
+                break;
+            }
+        }
+    }
+
+    private void finish() {
+        drainVideo();
+        close();
+        if (DEBUG)
+            System.out.println("DEBUG: totally " + videoPacketCount + " video packets and " + audioPacketCount
+                    + " audio packets");
+        mediaInfo = MediaAnalyzer.createMediaInfo(file, keyFrameTimestamps, calculatedFrameRates,
+                audioSamplesInfoList, videoPictureInfoList, videoPacketTimeBase, audioPacketTimeBase, samplesTimeBase,
+                audioFrameSize, videoFrameRate, true);
+        done = true;
+        MediaAnalyzer.store(file, mediaInfo, store);
+    }
+
+    /**
+     * The media info of an analysis that is not done yet only covers the video up to the last key frame found so far
+     * ({@link MediaInfo#complete} is false then). Each call creates a new one (compressing all frames analyzed so far,
+     * so it gets more expensive as the analysis goes on). All of them have the frame rate of the first one.
+     *
+     * @return the media info of the analyzed part or null if not enough of the video is analyzed for playing it yet
+     */
+    public MediaInfo getMediaInfo() {
+        if (done)
+            return mediaInfo;
+        if (lastKeyPicture <= 0 || audioDecoder != null && audioFrameSize == -1)
+            return null;
+        // frames from the last key frame on are left out, so that the GOPs known so far do not change any more (also
+        // the key frames, which are found in the packets before their pictures are decoded)
+        int nKeyFrames = Math.min(keyFrameTimestamps.size(), keyPictureCount - 1);
+        MediaInfo analyzed = MediaAnalyzer.createMediaInfo(file, keyFrameTimestamps.subList(0, nKeyFrames),
+                calculatedFrameRates, audioSamplesInfoList, videoPictureInfoList.subList(0, lastKeyPicture),
+                videoPacketTimeBase, audioPacketTimeBase, samplesTimeBase, audioFrameSize, videoFrameRate, false);
+        if (analyzed != null)
+            videoFrameRate = analyzed.videoFrameRate;
+        return analyzed;
+    }
+
+    /**
+     * Analyzes until the beginning of the video can be played (independent of the length of the video).
+     *
+     * @return the media info of the analyzed part (see {@link #getMediaInfo()})
+     */
+    public MediaInfo analyzeUntilPlayable() {
+        int triedKeyPicture = -1;
+        while (true) {
+            analyzeNext();
+            // only worth trying again once there is another key frame
+            if (done || lastKeyPicture != triedKeyPicture) {
+                triedKeyPicture = lastKeyPicture;
+                MediaInfo analyzed = getMediaInfo();
+                if (analyzed != null)
+                    return analyzed;
+            }
+        }
+    }
+
+    /**
+     * Closes the video (also if the analysis is not done yet).
+     */
+    public void close() {
+        if (audioDecoder != null && audioDecoder.isOpen())
+            audioDecoder.close();
+        if (videoDecoder != null && videoDecoder.isOpen())
+            videoDecoder.close();
+        if (container != null && container.isOpened())
+            container.close();
+    }
+}
@@ -6,283 +6,184 @@ package exmoplay.access;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
-import com.xuggle.xuggler.IAudioSamples;
-import com.xuggle.xuggler.ICodec;
-import com.xuggle.xuggler.IContainer;
-import com.xuggle.xuggler.IError;
-import com.xuggle.xuggler.IPacket;
-import com.xuggle.xuggler.IStream;
-import com.xuggle.xuggler.IStreamCoder;
-import com.xuggle.xuggler.IStreamCoder.Direction;
-import com.xuggle.xuggler.IVideoPicture;
-
 import exmoplay.access.MediaInfo.AudioSamplesInfo;
 import exmoplay.access.MediaInfo.VideoPictureInfo;
 
 public class MediaAnalyzer {
 
-    private static final long END_OF_MEDIA = -541478725L;
-    private static final long OPERATION_NOT_PERMITTED = -1L; // can happen at end of video
     public static final long MP2_HEADER_MISSING = -1094995529L; // can happen when decoding audio
 
+    /**
+     * Takes the media info from the default store if the video was analyzed before (see
+     * {@link MediaInfoStore#getDefault()}), otherwise analyzes it and stores the result.
+     */
     public static MediaInfo analyze(File file) throws IOException {
-        IContainer container = null;
-        IStream[] streams = null;
-        IStreamCoder[] coders = null;
-        IStream audioStream = null;
-        IStream videoStream = null;
-        IStreamCoder audioCoder = null;
-        IStreamCoder videoCoder = null;
-        int videoStreamIndex = -1;
-        int audioStreamIndex = -1;
+        return analyze(file, MediaInfoStore.getDefault());
+    }
 
-        try {
-            // open file
-            container = IContainer.make();
-            if (container.open(new RandomAccessFile(file, "r"), IContainer.Type.READ, null) < 0) {
-                throw new RuntimeException("error opening file");
-            }
-            int numStreams = container.getNumStreams();
-            streams = new IStream[numStreams];
-            coders = new IStreamCoder[numStreams];
-            for (int i = 0; i < numStreams; i++) {
-                IStream stream = container.getStream(i);
-                streams[i] = stream;
-                IStreamCoder coder = stream.getStreamCoder();
-                coders[i] = coder;
-                if (coder.getCodecType() == ICodec.Type.CODEC_TYPE_AUDIO) {
-                    audioStream = stream;
-                    audioCoder = coder;
-                    audioStreamIndex = i;
-                } else if (coder.getCodecType() == ICodec.Type.CODEC_TYPE_VIDEO) {
-                    videoStream = stream;
-                    videoCoder = coder;
-                    videoStreamIndex = i;
-                } else {
-                    System.err.println("Unknown codec of type " + coder.getCodecType());
-                }
-            }
+    /**
+     * Analyzes the video in a single pass (the parallel analysis is only used when asked for, see
+     * {@link #analyze(File, MediaInfoStore, int)}, until it is verified to give the same results on real videos).
+     *
+     * @param store where results are looked up and stored (null for always analyzing the video)
+     */
+    public static MediaInfo analyze(File file, MediaInfoStore store) throws IOException {
+        return analyze(file, store, 1);
+    }
 
-            if (audioCoder != null) {
-                if (audioCoder.open(null, null) < 0)
-                    throw new RuntimeException("error opening audio stream coder");
+    /**
+     * @param store where results are looked up and stored (null for always analyzing the video)
+     * @param nThreads how many threads decode the video (1 for a single pass on the calling thread); if the parallel
+     *            analysis fails (e.g. a range cannot be seeked to in a video without an index), the video is analyzed
+     *            in a single pass
+     */
+    public static MediaInfo analyze(File file, MediaInfoStore store, int nThreads) throws IOException {
+        if (nThreads < 1)
+            throw new IllegalArgumentException("invalid number of threads: " + nThreads);
+        MediaInfo stored = load(file, store);
+        if (stored != null)
+            return stored;
+        MediaInfo mediaInfo = null;
+        if (nThreads > 1) {
+            try {
+                mediaInfo = ParallelMediaAnalyzer.analyze(file, nThreads);
+            } catch (RuntimeException e) {
+                System.err.println("WARN: parallel analysis of " + file + " failed, analyzing it in a single pass: "
+                        + e);
             }
-            if (videoCoder.open(null, null) < 0)
-                throw new RuntimeException("error opening video stream coder");
-
-            IPacket packet = IPacket.make();
-            double frameRate = videoCoder.getFrameRate().getDouble();
-            long duration = container.getDuration();
-            long lastTimestamp = -1;
-
-            // find key frames in video stream
-            List<Long> keyFrameTimestamps = new ArrayList<Long>();
-            List<Double> calculatedFrameRates = new ArrayList<Double>();
-            int videoPacketCount = 0;
-            int audioPacketCount = 0;
-            while (true) {
-                int errorNum;
-                if ((errorNum = container.readNextPacket(packet)) < 0) {
-                    if (errorNum == END_OF_MEDIA || errorNum == OPERATION_NOT_PERMITTED) {
-                        break;
-                    } else {
-                        IError error = IError.make(errorNum);
-                        throw new RuntimeException("error reading packet: " + error.getDescription() + "(" + errorNum
-                                + ")");
-                    }
-                }
+        }
+        if (mediaInfo == null)
+            mediaInfo = analyzeFile(file);
+        store(file, mediaInfo, store);
+        return mediaInfo;
+    }
 
-                lastTimestamp = (long) (packet.getTimeStamp() * packet.getTimeBase().getValue() * 1000000L);
+    /**
+     * Starts a single pass analysis that is done step by step (the result is stored when it is done). If the video was
+     * analyzed before, the analysis is done right away.
+     *
+     * @param store where results are looked up and stored (null for always analyzing the video)
+     */
+    public static MediaAnalysis startAnalysis(File file, MediaInfoStore store) throws IOException {
+        MediaInfo stored = load(file, store);
+        if (stored != null)
+            return new MediaAnalysis(file, stored);
+        return new MediaAnalysis(file, store);
+    }
 
-                //int size = packet.getSize();
-                if (packet.getStreamIndex() == videoStreamIndex) {
-                    if (packet.isKey()) {
-                        keyFrameTimestamps.add(lastTimestamp);
-                        if (lastTimestamp > 0) {
-                            double calculatedFrameRate = videoPacketCount * 1000000.0 / (double) lastTimestamp;
-                            calculatedFrameRates.add(calculatedFrameRate);
-                        }
-                    }
-                    videoPacketCount++;
-                } else if (packet.getStreamIndex() == audioStreamIndex) {
-                    audioPacketCount++;
-                }
+    private static MediaInfo load(File file, MediaInfoStore store) {
+        if (store != null) {
+            try {
+                return store.load(file);
+            } catch (IOException e) {
+                System.err.println("WARN: could not load the stored media info of " + file + ": " + e);
+            } catch (RuntimeException e) {
+                // analyzing the video again is always possible
+                System.err.println("WARN: could not load the stored media info of " + file + ": " + e);
             }
-            System.out.println("Totally " + videoPacketCount + " video packets and " + audioPacketCount
-                    + " audio packets.");
+        }
+        return null;
+    }
 
-            // check calculated frame rates
-            double selectedFrameRate = calculatedFrameRates.get(calculatedFrameRates.size() - 1);
-            double averageFrameRate = 0;
-            for (Double rate : calculatedFrameRates) {
-                averageFrameRate += rate;
+    static void store(File file, MediaInfo mediaInfo, MediaInfoStore store) {
+        if (store != null) {
+            try {
+                store.store(file, mediaInfo);
+            } catch (IOException e) {
+                System.err.println("WARN: could not store the media info of " + file + ": " + e);
             }
-            averageFrameRate /= calculatedFrameRates.size();
-
-            // find time base corrections for video and audio (timebase of picture was wrong in one case)
-            double videoPacketTimeBase = Double.NaN;
-            double audioPacketTimeBase = Double.NaN;
-            double pictureTimeBase = Double.NaN;
-            double samplesTimeBase = Double.NaN;
-            List<AudioSamplesInfo> audioSamplesInfoList = new LinkedList<MediaInfo.AudioSamplesInfo>();
-            List<VideoPictureInfo> videoPictureInfoList = new LinkedList<MediaInfo.VideoPictureInfo>();
-            int audioFrameSize = -1;
-            if (keyFrameTimestamps.size() >= 2) {
-                IStreamCoder audioDecoder = null;
-                IStreamCoder videoDecoder = null;
-                try {
-                    if (audioCoder != null) {
-                        audioDecoder = IStreamCoder.make(Direction.DECODING, audioCoder);
-                        if (audioDecoder.open(null, null) < 0)
-                            throw new RuntimeException("error opening audio stream decoder");
-                    }
-                    videoDecoder = IStreamCoder.make(Direction.DECODING, videoCoder);
-                    if (videoDecoder.open(null, null) < 0)
-                        throw new RuntimeException("error opening video stream decoder");
-
-                    long seekMicros = keyFrameTimestamps.get(1);
-                    if (container.seekKeyFrame(-1, 0, seekMicros, seekMicros, 0) < 0)
-                        throw new RuntimeException("error seeking to position " + (seekMicros / 1000.0) + "ms");
-
-                    boolean audioComplete = false;
-                    boolean videoComplete = false;
-                    IAudioSamples audioSamples = null;
-                    if (audioCoder != null)
-                        audioSamples = IAudioSamples.make(4096, audioCoder.getChannels());
-                    IVideoPicture videoPicture = IVideoPicture.make(videoCoder.getPixelType(), videoCoder.getWidth(),
-                            videoCoder.getHeight());
-                    boolean firstAudioPacket = true;
-                    boolean firstVideoPacket = true;
-                    double audioPacketTime = Double.NaN;
-                    double videoPacketTime = Double.NaN;
-                    long videoFrameIndex = 0;
-                    boolean firstVideoMeasurementDone = false;
-                    boolean secondVideoMeasurementDone = false;
-                    double firstVideoTimeStamp = Double.NaN;
-                    double secondVideoTimeStamp = Double.NaN;
-
-                    long audioSamplesOffset = 0;
+        }
+    }
 
-                    while (true) {
-                        int error;
-                        if ((error = container.readNextPacket(packet)) < 0) {
-                            if (error == END_OF_MEDIA || error == OPERATION_NOT_PERMITTED)
-                                break;
-                            throw new RuntimeException("error reading packet: " + IError.make(error).getDescription());
-                        }
+    /**
+     * Calibrates the time bases and compresses the directories of the collected frames.
+     *
+     * @param complete false if only the beginning of the video was analyzed
+     * @return the media info (null if the analyzed beginning is too short for calibrating the time bases yet)
+     */
+    static MediaInfo createMediaInfo(File file, List<Long> keyFrameTimestamps, List<Double> calculatedFrameRates,
+            List<AudioSamplesInfo> audioSamplesInfoList, List<VideoPictureInfo> videoPictureInfoList,
+            double videoPacketTimeBase, double audioPacketTimeBase, double samplesTimeBase, int audioFrameSize,
+            boolean complete) {
+        return createMediaInfo(file, keyFrameTimestamps, calculatedFrameRates, audioSamplesInfoList,
+                videoPictureInfoList, videoPacketTimeBase, audioPacketTimeBase, samplesTimeBase, audioFrameSize,
+                Double.NaN, complete);
+    }
 
-                        if (audioCoder != null && packet.getStreamIndex() == audioStreamIndex) {
-                            if (firstAudioPacket) {
-                                audioPacketTimeBase = packet.getTimeBase().getValue();
-                                audioPacketTime = packet.getTimeStamp() * audioPacketTimeBase;
-                                firstAudioPacket = false;
-                            }
-                            int offset = 0;
-                            while (offset < packet.getSize()) {
-                                int bytesDecoded = audioDecoder.decodeAudio(audioSamples, packet, offset);
-                                if (bytesDecoded < 0) {
-                                    if (bytesDecoded == MP2_HEADER_MISSING) {
-                                        offset = packet.getSize(); // assume it was consumed to skip it
-                                        break;
-                                    }
-                                    throw new RuntimeException("error decoding audio");
-                                }
-                                offset += bytesDecoded;
+    /**
+     * @param videoFrameRate the frame rate of the media info (NaN for the average of the calculated frame rates); a
+     *            media info of the same video created before may fix it, as the frame numbers depend on it
+     */
+    static MediaInfo createMediaInfo(File file, List<Long> keyFrameTimestamps, List<Double> calculatedFrameRates,
+            List<AudioSamplesInfo> audioSamplesInfoList, List<VideoPictureInfo> videoPictureInfoList,
+            double videoPacketTimeBase, double audioPacketTimeBase, double samplesTimeBase, int audioFrameSize,
+            double videoFrameRate, boolean complete) {
+        if (keyFrameTimestamps.size() < 2) {
+            if (!complete)
+                return null;
+            // case less than 2 key frames (not very probable)
+            throw new RuntimeException("less than 2 key frames in video");
+        }
 
-                                if (audioSamples.isComplete()) {
-                                    audioSamplesInfoList.add(new AudioSamplesInfo(audioSamplesInfoList.size(),
-                                            audioSamples.getTimeStamp(), audioSamplesOffset, audioSamples.getSize()));
-                                    audioSamplesOffset += audioSamples.getSize();
+        // check calculated frame rates
+        double averageFrameRate = 0;
+        for (Double rate : calculatedFrameRates) {
+            averageFrameRate += rate;
+        }
+        averageFrameRate /= calculatedFrameRates.size();
+
+        // find the time base of the pictures (it was wrong in one case): the timestamps of the pictures one and two
+        // seconds after the second key frame are one second apart
+        // (cannot take videoPicture.getTimeBase() here, because for some videos (mobile MP4), the timebase referred
+        // to milliseconds instead of seconds)
+        int measurementStart = findSecondKeyPicture(videoPictureInfoList);
+        int firstMeasurement = measurementStart + (int) Math.floor(averageFrameRate);
+        int secondMeasurement = measurementStart + (int) Math.floor(2 * averageFrameRate);
+        if (secondMeasurement >= videoPictureInfoList.size()) {
+            if (!complete)
+                return null;
+            throw new IllegalStateException("no complete video frame was found for video " + file);
+        }
+        double pictureTimeBase = 1.0 / (videoPictureInfoList.get(secondMeasurement).timestamp
+                - videoPictureInfoList.get(firstMeasurement).timestamp);
 
-                                    samplesTimeBase = audioSamples.getTimeBase().getValue();
-                                    audioFrameSize = audioSamples.getSize();
-                                    audioComplete = true;
-                                    break;
-                                }
-                            }
-                        } else if (packet.getStreamIndex() == videoStreamIndex) {
-                            if (firstVideoPacket) {
-                                videoPacketTimeBase = packet.getTimeBase().getValue();
-                                videoPacketTime = packet.getTimeStamp() * videoPacketTimeBase;
-                                firstVideoPacket = false;
-                            }
-                            int offset = 0;
-                            while (offset < packet.getSize()) {
-                                int bytesDecoded = videoDecoder.decodeVideo(videoPicture, packet, offset);
-                                if (bytesDecoded < 0)
-                                    throw new RuntimeException("error decoding video");
-                                offset += bytesDecoded;
+        pictureTimeBase = 1.0 / (Math.round(1.0 / pictureTimeBase * 1000.0) / 1000.0);
+        samplesTimeBase = 1.0 / (Math.round(1.0 / samplesTimeBase * 1000.0) / 1000.0);
+        CompressedFrameDirectory.Audio compressedAudioSamplesInfo = CompressedFrameDirectory
+                .compressAudio(audioSamplesInfoList);
+        CompressedFrameDirectory.Video compressedVideoPictureInfo = CompressedFrameDirectory
+                .compressVideo(videoPictureInfoList);
 
-                                if (videoPicture.isComplete()) {
-                                    videoPictureInfoList.add(new VideoPictureInfo(videoPictureInfoList.size(),
-                                            videoPicture.getTimeStamp(), videoPicture.isKey()));
+        long durationInFrames = videoPictureInfoList.size();
 
-                                    // cannot take videoPicture.getTimeBase() here, because for some videos (mobile MP4), the timebase referred to milliseconds instead of seconds
-                                    pictureTimeBase = videoPicture.getTimeStamp()
-                                            / (videoFrameIndex / averageFrameRate);
-                                    videoFrameIndex++;
-                                    if (!firstVideoMeasurementDone && videoFrameIndex > averageFrameRate) {
-                                        firstVideoTimeStamp = videoPicture.getTimeStamp();
-                                        firstVideoMeasurementDone = true;
-                                    }
-                                    if (!secondVideoMeasurementDone && videoFrameIndex > 2 * averageFrameRate) {
-                                        secondVideoTimeStamp = videoPicture.getTimeStamp();
-                                        secondVideoMeasurementDone = true;
-                                        videoComplete = true;
-                                    }
-                                    //break;
-                                }
-                            }
-                        } else {
-                            // ignore
-                        }
-                    }
-                    if (!videoComplete)
-                        throw new IllegalStateException("no complete video frame was found for video " + file);
-                    // commented out, because there are videos without audio
-                    //if (!audioComplete)
-                    //    throw new IllegalStateException("no complete audio frame was found for video " + file);
+        return new MediaInfo(keyFrameTimestamps, compressedAudioSamplesInfo, compressedVideoPictureInfo,
+                videoPacketTimeBase, audioPacketTimeBase, pictureTimeBase, samplesTimeBase, audioFrameSize,
+                Double.isNaN(videoFrameRate) ? averageFrameRate : videoFrameRate, durationInFrames, complete);
+    }
 
-                    pictureTimeBase = 1.0 / (secondVideoTimeStamp - firstVideoTimeStamp);
+    /**
+     * @return the index of the second key picture (0 if there is none)
+     */
+    private static int findSecondKeyPicture(List<VideoPictureInfo> pictures) {
+        int nKeys = 0;
+        for (int i = 0; i < pictures.size(); i++) {
+            if (pictures.get(i).key && ++nKeys == 2)
+                return i;
+        }
+        return 0;
+    }
 
-                } finally {
-                    if (audioDecoder != null && audioDecoder.isOpen())
-                        audioDecoder.close();
-                    if (videoDecoder != null && videoDecoder.isOpen())
-                        videoDecoder.close();
-                }
-            } else {
-                // case less than 2 key frames (not very probable)
-                throw new RuntimeException("less than 2 key frames in video");
+    private static MediaInfo analyzeFile(File file) throws IOException {
+        MediaAnalysis analysis = new MediaAnalysis(file, (MediaInfoStore) null);
+        try {
+            while (!analysis.isDone()) {
+                analysis.analyzeNext(Integer.MAX_VALUE);
             }
-
-            pictureTimeBase = 1.0 / (Math.round(1.0 / pictureTimeBase * 1000.0) / 1000.0);
-            samplesTimeBase = 1.0 / (Math.round(1.0 / samplesTimeBase * 1000.0) / 1000.0);
-
-            CompressedFrameDirectory.Audio compressedAudioSamplesInfo = CompressedFrameDirectory.compressAudio(audioSamplesInfoList);
-            CompressedFrameDirectory.Video compressedVideoPictureInfo = CompressedFrameDirectory.compressVideo(videoPictureInfoList);
-
-            long durationInFrames = videoPictureInfoList.size();
-
-            return new MediaInfo(keyFrameTimestamps, compressedAudioSamplesInfo, compressedVideoPictureInfo,
-                    videoPacketTimeBase,
-                    audioPacketTimeBase, pictureTimeBase, samplesTimeBase, audioFrameSize, averageFrameRate,
-                    durationInFrames);
-
+            return analysis.getMediaInfo();
         } finally {
-            if (audioCoder != null && audioCoder.isOpen())
-                audioCoder.close();
-            if (videoCoder != null && videoCoder.isOpen())
-                videoCoder.close();
-            if (container != null && container.isOpened()) {
-                container.close();
-            }
-
+            analysis.close();
         }
     }
 }
@@ -30,7 +30,7 @@ public class MediaFrame {
      * Only call this method, if you can be sure that this frame will no longer be used.
      */
     public void delete() {
-        video.videoPicture.delete();
+        video.picture.delete();
     }
 
     /**
@@ -43,7 +43,8 @@ public class MediaFrame {
     public int getSizeInBytes() {
         int audioBytes = this.audio.audioData.length;
         BufferedImage image = this.video.bufferedImage;
-        int videoBytes = image.getWidth() * image.getHeight() * 4; // assuming 32 bit images
+        // the image and the decoded picture (the BGR24 picture for converting it is shared by all frames)
+        int videoBytes = image.getWidth() * image.getHeight() * 3 + video.picture.getSize();
         return audioBytes + videoBytes;
     }
 }
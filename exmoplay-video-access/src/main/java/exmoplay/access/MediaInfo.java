@@ -4,11 +4,10 @@
  */
 package exmoplay.access;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 public class MediaInfo {
 
@@ -22,15 +21,46 @@ public class MediaInfo {
     public final int audioFrameSize;
     public final double videoFrameRate;
     public final long numberOfVideoFrames;
+    public final boolean complete; // false if only the beginning of the video is analyzed yet (see MediaAnalysis)
 
-    private SortedMap<Long, AudioSamplesInfo> audioSamplesInfoBySamplesOffset;
-    private List<VideoPictureInfo> videoPictureInfoDecompressed;
+    // the directories are decompressed into primitive arrays for the lookups (one object per frame would add up to
+    // hundreds of thousands of objects for a long video); all final, as the media info is shared between threads
+    private final long[] keyFrameTimestampArray;
+    private final long[] audioSamplesOffsets;
+    private final long[] audioSamplesTimestamps;
+    private final int[] audioSamplesLengths;
+    private final long[] videoPictureTimestamps;
+    private final BitSet videoKeyPictures;
+    private final long[] keyFrameNumbers;
 
     public MediaInfo(List<Long> keyFrameTimestamps, CompressedFrameDirectory.Audio audioSamplesInfo,
             CompressedFrameDirectory.Video videoPictureInfo, double videoPacketTimeBase, double audioPacketTimeBase,
             double pictureTimeBase, double samplesTimeBase, int audioFrameSize, double videoFrameRate,
             long numberOfVideoFrames) {
-        this.keyFrameTimestamps = Collections.unmodifiableList(new ArrayList<Long>(keyFrameTimestamps));
+        this(keyFrameTimestamps, audioSamplesInfo, videoPictureInfo, videoPacketTimeBase, audioPacketTimeBase,
+                pictureTimeBase, samplesTimeBase, audioFrameSize, videoFrameRate, numberOfVideoFrames, true);
+    }
+
+    public MediaInfo(List<Long> keyFrameTimestamps, CompressedFrameDirectory.Audio audioSamplesInfo,
+            CompressedFrameDirectory.Video videoPictureInfo, double videoPacketTimeBase, double audioPacketTimeBase,
+            double pictureTimeBase, double samplesTimeBase, int audioFrameSize, double videoFrameRate,
+            long numberOfVideoFrames, boolean complete) {
+        keyFrameTimestampArray = new long[keyFrameTimestamps.size()];
+        for (int i = 0; i < keyFrameTimestampArray.length; i++) {
+            keyFrameTimestampArray[i] = keyFrameTimestamps.get(i);
+        }
+        // read only view, boxing only the values that are read
+        this.keyFrameTimestamps = new AbstractList<Long>() {
+            @Override
+            public Long get(int index) {
+                return keyFrameTimestampArray[index];
+            }
+
+            @Override
+            public int size() {
+                return keyFrameTimestampArray.length;
+            }
+        };
         this.audioSamplesInfo = audioSamplesInfo;
         this.videoPictureInfo = videoPictureInfo;
         this.videoPacketTimeBase = videoPacketTimeBase;
@@ -40,18 +70,39 @@ public class MediaInfo {
         this.audioFrameSize = audioFrameSize;
         this.videoFrameRate = videoFrameRate;
         this.numberOfVideoFrames = numberOfVideoFrames;
+        this.complete = complete;
+
+        if (audioSamplesInfo != null) {
+            audioSamplesTimestamps = audioSamplesInfo.decompressTimestamps();
+            audioSamplesLengths = audioSamplesInfo.decompressSampleLengths();
+            audioSamplesOffsets = audioSamplesInfo.decompressSampleOffsets();
+        } else {
+            audioSamplesTimestamps = new long[0];
+            audioSamplesLengths = new int[0];
+            audioSamplesOffsets = new long[0];
+        }
+        videoKeyPictures = new BitSet();
+        if (videoPictureInfo != null) {
+            for (int keyFrame : videoPictureInfo.decompressKeyFrames()) {
+                videoKeyPictures.set(keyFrame);
+            }
+            videoPictureTimestamps = videoPictureInfo.decompressTimestamps();
+        } else {
+            videoPictureTimestamps = new long[0];
+        }
+        keyFrameNumbers = calculateKeyFrameNumbers();
     }
 
     public long findRelevantKeyframeTimestamp(long targetValue) {
         if (targetValue < 0)
             return 0;
         int low = 0;
-        int high = keyFrameTimestamps.size() - 1;
+        int high = keyFrameTimestampArray.length - 1;
         if (high == -1)
             return targetValue; // just return value itself as a fallback
         while (low < high) {
             int median = low + (high - low + 1) / 2;
-            long valueAtMedian = keyFrameTimestamps.get(median);
+            long valueAtMedian = keyFrameTimestampArray[median];
             if (valueAtMedian > targetValue)
                 high = median - 1;
             else if (valueAtMedian < targetValue)
@@ -59,7 +110,33 @@ public class MediaInfo {
             else
                 return targetValue; // exact match
         }
-        return keyFrameTimestamps.get(low);
+        return keyFrameTimestampArray[low];
+    }
+
+    /**
+     * @return the timestamp of the first key frame in microseconds (where the stream starts)
+     */
+    public long getStartTimestamp() {
+        return keyFrameTimestampArray.length > 0 ? keyFrameTimestampArray[0] : 0;
+    }
+
+    /**
+     * @return the frame numbers of the key frames (calculated from their timestamps relative to the first one, as the
+     *         stream does not necessarily start at 0), ascending and without duplicates
+     */
+    public long[] getKeyFrameNumbers() {
+        return keyFrameNumbers.clone();
+    }
+
+    private long[] calculateKeyFrameNumbers() {
+        long[] numbers = new long[keyFrameTimestampArray.length];
+        int n = 0;
+        for (long timestamp : keyFrameTimestampArray) {
+            long number = Math.round((timestamp - keyFrameTimestampArray[0]) / 1000000.0 * videoFrameRate);
+            if (n == 0 || number > numbers[n - 1])
+                numbers[n++] = number;
+        }
+        return Arrays.copyOf(numbers, n);
     }
 
     public static class AudioSamplesInfo {
@@ -98,24 +175,64 @@ public class MediaInfo {
         }
     }
 
-    public AudioSamplesInfo findAudioSamplesInfoContainingOffset(long offset) {
-        if (audioSamplesInfoBySamplesOffset == null) {
-            audioSamplesInfoBySamplesOffset = new TreeMap<Long, MediaInfo.AudioSamplesInfo>();
-            for (AudioSamplesInfo info : audioSamplesInfo.decompress()) {
-                audioSamplesInfoBySamplesOffset.put(info.samplesOffset, info);
-            }
+    /**
+     * @return the index of the audio samples containing the offset (for {@link #getAudioSamplesTimestamp(int)} etc.)
+     *         or -1 if the offset is before the first samples
+     */
+    public int findAudioSamplesContainingOffset(long offset) {
+        int i = Arrays.binarySearch(audioSamplesOffsets, offset);
+        // samples of length 0 share the offset with the next ones, so the last of them is the one containing it
+        if (i >= 0) {
+            while (i + 1 < audioSamplesOffsets.length && audioSamplesOffsets[i + 1] == offset)
+                i++;
+            return i;
         }
+        return -i - 2;
+    }
 
-        Long key = audioSamplesInfoBySamplesOffset.headMap(offset + 1).lastKey();
-        return audioSamplesInfoBySamplesOffset.get(key);
+    public long getAudioSamplesTimestamp(int index) {
+        return audioSamplesTimestamps[index];
     }
 
-    public VideoPictureInfo findVideoPictureInfoByFrameNumber(long frameNr) {
-        if (videoPictureInfoDecompressed == null) {
-            videoPictureInfoDecompressed = videoPictureInfo.decompress();
-        }
-        if (frameNr > videoPictureInfoDecompressed.size())
+    public long getAudioSamplesOffset(int index) {
+        return audioSamplesOffsets[index];
+    }
+
+    public int getAudioSamplesLength(int index) {
+        return audioSamplesLengths[index];
+    }
+
+    /**
+     * Allocates the result (see {@link #findAudioSamplesContainingOffset(long)} for a lookup without allocating).
+     */
+    public AudioSamplesInfo findAudioSamplesInfoContainingOffset(long offset) {
+        int i = findAudioSamplesContainingOffset(offset);
+        if (i == -1)
             return null;
-        return videoPictureInfoDecompressed.get((int) frameNr);
+        return new AudioSamplesInfo(i, audioSamplesTimestamps[i], audioSamplesOffsets[i], audioSamplesLengths[i]);
+    }
+
+    /**
+     * @return the timestamp of the picture or -1 if the frame is not known (e.g. after the analyzed part if the
+     *         analysis is not complete)
+     */
+    public long getVideoPictureTimestamp(long frameNr) {
+        if (frameNr < 0 || frameNr >= videoPictureTimestamps.length)
+            return -1;
+        return videoPictureTimestamps[(int) frameNr];
+    }
+
+    public boolean isKeyPicture(long frameNr) {
+        return frameNr >= 0 && frameNr < videoPictureTimestamps.length && videoKeyPictures.get((int) frameNr);
+    }
+
+    /**
+     * Allocates the result (see {@link #getVideoPictureTimestamp(long)} for a lookup without allocating).
+     */
+    public VideoPictureInfo findVideoPictureInfoByFrameNumber(long frameNr) {
+        if (frameNr >= videoPictureTimestamps.length)
+            return null; // e.g. after the analyzed part (if the analysis is not complete)
+        return new VideoPictureInfo((int) frameNr, videoPictureTimestamps[(int) frameNr],
+                videoKeyPictures.get((int) frameNr));
     }
 }
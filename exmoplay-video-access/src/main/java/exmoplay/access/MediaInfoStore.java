@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.access;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the results of {@link MediaAnalyzer} in a directory, so that a video only has to be analyzed once. An entry is
+ * only used if the video still has the same path, size, modification time and beginning (hash of the first 64KB) and
+ * if it was written in the current format version.
+ * 
+ * @author agent
+ */
+public class MediaInfoStore {
+
+    private static final int MAGIC = 0x45584d49; // "EXMI"
+    // increase whenever the format or the results of the analysis change (older entries are ignored then)
+    static final int FORMAT_VERSION = 3;
+    private static final int HEAD_BYTES = 64 * 1024;
+
+    private static MediaInfoStore defaultStore;
+
+    private final File directory;
+
+    public MediaInfoStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the store in the directory given by the system property "exmoplay.mediaInfoStore" (default:
+     *         ~/.exmoplay/mediainfo), or null if the property is "none"
+     */
+    public static synchronized MediaInfoStore getDefault() {
+        String path = System.getProperty("exmoplay.mediaInfoStore");
+        if ("none".equals(path))
+            return null;
+        if (defaultStore == null) {
+            File directory = path != null ? new File(path) : new File(System.getProperty("user.home"),
+                    ".exmoplay" + File.separator + "mediainfo");
+            defaultStore = new MediaInfoStore(directory);
+        }
+        return defaultStore;
+    }
+
+    /**
+     * @return the stored media info of the video or null if there is none (or it is outdated or cannot be read, in
+     *         which case the entry is deleted)
+     */
+    public MediaInfo load(File videoFile) throws IOException {
+        File entry = getEntryFile(videoFile);
+        if (!entry.isFile())
+            return null;
+        try {
+            return read(entry, videoFile);
+        } catch (IOException e) {
+            return discard(entry, e);
+        } catch (RuntimeException e) {
+            return discard(entry, e);
+        } catch (OutOfMemoryError e) {
+            return discard(entry, e);
+        }
+    }
+
+    private static MediaInfo discard(File entry, Throwable cause) {
+        System.err.println("WARN: deleting the unreadable media info " + entry + ": " + cause);
+        entry.delete();
+        return null;
+    }
+
+    private static MediaInfo read(File entry, File videoFile) throws IOException {
+        // no length read from the entry can be larger than the entry itself (unless it is corrupt)
+        long maxLength = entry.length();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION)
+                return null;
+            if (!in.readUTF().equals(videoFile.getCanonicalPath()) || in.readLong() != videoFile.length()
+                    || in.readLong() != videoFile.lastModified())
+                return null;
+            byte[] headHash = new byte[readLength(in, 1, maxLength)];
+            in.readFully(headHash);
+            if (!Arrays.equals(headHash, hashHead(videoFile)))
+                return null;
+
+            int nKeyFrames = readLength(in, 8, maxLength);
+            List<Long> keyFrameTimestamps = new ArrayList<Long>(nKeyFrames);
+            for (int i = 0; i < nKeyFrames; i++) {
+                keyFrameTimestamps.add(in.readLong());
+            }
+            CompressedFrameDirectory.Audio audio = new CompressedFrameDirectory.Audio(readInts(in, maxLength),
+                    readInts(in, maxLength), readInts(in, maxLength));
+            CompressedFrameDirectory.Video video = new CompressedFrameDirectory.Video(readInts(in, maxLength),
+                    readInts(in, maxLength));
+            double videoPacketTimeBase = in.readDouble();
+            double audioPacketTimeBase = in.readDouble();
+            double pictureTimeBase = in.readDouble();
+            double samplesTimeBase = in.readDouble();
+            int audioFrameSize = in.readInt();
+            double videoFrameRate = in.readDouble();
+            long numberOfVideoFrames = in.readLong();
+            return new MediaInfo(keyFrameTimestamps, audio, video, videoPacketTimeBase, audioPacketTimeBase,
+                    pictureTimeBase, samplesTimeBase, audioFrameSize, videoFrameRate, numberOfVideoFrames);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Stores the media info of the video (replacing an older entry). Only complete ones can be stored.
+     */
+    public void store(File videoFile, MediaInfo mediaInfo) throws IOException {
+        if (!mediaInfo.complete)
+            throw new IllegalArgumentException("the analysis of " + videoFile + " is not complete");
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("could not create directory " + directory);
+        File entry = getEntryFile(videoFile);
+        // written to a temporary file first, so that a concurrent load never sees a partial entry
+        File temp = File.createTempFile("mediainfo", ".tmp", directory);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(videoFile.getCanonicalPath());
+            out.writeLong(videoFile.length());
+            out.writeLong(videoFile.lastModified());
+            byte[] headHash = hashHead(videoFile);
+            out.writeInt(headHash.length);
+            out.write(headHash);
+
+            out.writeInt(mediaInfo.keyFrameTimestamps.size());
+            for (long timestamp : mediaInfo.keyFrameTimestamps) {
+                out.writeLong(timestamp);
+            }
+            writeInts(out, mediaInfo.audioSamplesInfo.compressedTimestamps);
+            writeInts(out, mediaInfo.audioSamplesInfo.compressedSampleOffsets);
+            writeInts(out, mediaInfo.audioSamplesInfo.compressedSampleLengths);
+            writeInts(out, mediaInfo.videoPictureInfo.compressedTimestamps);
+            writeInts(out, mediaInfo.videoPictureInfo.compressedKeyFrames);
+            out.writeDouble(mediaInfo.videoPacketTimeBase);
+            out.writeDouble(mediaInfo.audioPacketTimeBase);
+            out.writeDouble(mediaInfo.pictureTimeBase);
+            out.writeDouble(mediaInfo.samplesTimeBase);
+            out.writeInt(mediaInfo.audioFrameSize);
+            out.writeDouble(mediaInfo.videoFrameRate);
+            out.writeLong(mediaInfo.numberOfVideoFrames);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(entry)) {
+            // renaming does not replace existing files on all platforms
+            entry.delete();
+            if (!temp.renameTo(entry)) {
+                temp.delete();
+                throw new IOException("could not write " + entry);
+            }
+        }
+    }
+
+    /**
+     * @return the file of the entry (named by a hash of the path of the video)
+     */
+    private File getEntryFile(File videoFile) throws IOException {
+        byte[] pathHash = sha1().digest(videoFile.getCanonicalPath().getBytes("UTF-8"));
+        return new File(directory, toHex(pathHash) + ".mediainfo");
+    }
+
+    private static byte[] hashHead(File videoFile) throws IOException {
+        MessageDigest digest = sha1();
+        byte[] buffer = new byte[8192];
+        InputStream in = new FileInputStream(videoFile);
+        try {
+            int total = 0;
+            int n;
+            while (total < HEAD_BYTES && (n = in.read(buffer, 0, Math.min(buffer.length, HEAD_BYTES - total))) > 0) {
+                digest.update(buffer, 0, n);
+                total += n;
+            }
+        } finally {
+            in.close();
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int v : values) {
+            out.writeInt(v);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in, long maxLength) throws IOException {
+        int[] values = new int[readLength(in, 4, maxLength)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    /**
+     * @return the number of elements of the given size that follow (checked against the size of the entry)
+     */
+    private static int readLength(DataInputStream in, int elementBytes, long maxLength) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || (long) length * elementBytes > maxLength)
+            throw new IOException("corrupt entry: invalid length " + length);
+        return length;
+    }
+}
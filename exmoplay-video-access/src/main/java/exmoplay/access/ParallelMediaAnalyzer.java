@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.access;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.xuggle.xuggler.IAudioSamples;
+import com.xuggle.xuggler.ICodec;
+import com.xuggle.xuggler.IContainer;
+import com.xuggle.xuggler.IError;
+import com.xuggle.xuggler.IPacket;
+import com.xuggle.xuggler.IPixelFormat.Type;
+import com.xuggle.xuggler.IStreamCoder;
+import com.xuggle.xuggler.IStreamCoder.Direction;
+import com.xuggle.xuggler.IVideoPicture;
+
+import exmoplay.access.MediaInfo.AudioSamplesInfo;
+import exmoplay.access.MediaInfo.VideoPictureInfo;
+
+/**
+ * Analyzes a video on several threads. A scan over the packets (without decoding) finds the key frames, then the video
+ * is split at key frames into ranges, which are decoded by a pool of workers, each with its own container and decoders.
+ * The ranges split the packets in file order (the audio packets go with the video packets they are muxed with), so the
+ * pictures and audio samples of the ranges merged in order are the ones of the single pass.
+ *
+ * @author agent
+ */
+class ParallelMediaAnalyzer {
+
+    private static final boolean DEBUG = false;
+
+    private static final long END_OF_MEDIA = -541478725L;
+    private static final long OPERATION_NOT_PERMITTED = -1L; // can happen at end of video
+    private static final int RANGES_PER_THREAD = 4; // more ranges than threads, so that the work is spread evenly
+    private static final int MAX_DRAINED_PICTURES = 32;
+
+    /**
+     * The result of the scan over the packets.
+     */
+    private static class Scan {
+        final List<Long> keyFrameTimestamps = new ArrayList<Long>();
+        final List<Integer> keyFramePacketNumbers = new ArrayList<Integer>();
+        final List<Double> calculatedFrameRates = new ArrayList<Double>();
+        int videoPacketCount = 0;
+        int audioPacketCount = 0;
+        double videoPacketTimeBase = Double.NaN;
+        double audioPacketTimeBase = Double.NaN;
+    }
+
+    private static class RangeResult {
+        final List<VideoPictureInfo> pictures = new ArrayList<VideoPictureInfo>();
+        final List<AudioSamplesInfo> samples = new ArrayList<AudioSamplesInfo>();
+        double samplesTimeBase = Double.NaN;
+        int audioFrameSize = -1;
+    }
+
+    static MediaInfo analyze(final File file, int nThreads) throws IOException {
+        Scan scan = scan(file);
+        int[] keyFramePacketNumbers = new int[scan.keyFramePacketNumbers.size()];
+        for (int i = 0; i < keyFramePacketNumbers.length; i++) {
+            keyFramePacketNumbers[i] = scan.keyFramePacketNumbers.get(i);
+        }
+        int[] rangeStarts = splitAtKeyFrames(keyFramePacketNumbers, scan.videoPacketCount, nThreads
+                * RANGES_PER_THREAD);
+        if (DEBUG)
+            System.out.println("DEBUG: analyzing " + file + " in " + rangeStarts.length + " ranges on " + nThreads
+                    + " threads");
+
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            List<Future<RangeResult>> futures = new ArrayList<Future<RangeResult>>();
+            for (int i = 0; i < rangeStarts.length; i++) {
+                final boolean first = i == 0;
+                final boolean last = i == rangeStarts.length - 1;
+                final long startMicros = scan.keyFrameTimestamps.get(rangeStarts[i]);
+                final long endMicros = last ? Long.MAX_VALUE : scan.keyFrameTimestamps.get(rangeStarts[i + 1]);
+                futures.add(executor.submit(new Callable<RangeResult>() {
+                    @Override
+                    public RangeResult call() throws Exception {
+                        return analyzeRange(file, startMicros, endMicros, first, last);
+                    }
+                }));
+            }
+
+            // merge the ranges, numbering the frames and summing up the sample offsets across them
+            List<VideoPictureInfo> videoPictureInfoList = new ArrayList<VideoPictureInfo>();
+            List<AudioSamplesInfo> audioSamplesInfoList = new ArrayList<AudioSamplesInfo>();
+            long audioSamplesOffset = 0;
+            double samplesTimeBase = Double.NaN;
+            int audioFrameSize = -1;
+            for (Future<RangeResult> future : futures) {
+                RangeResult range = getResult(future, file);
+                for (VideoPictureInfo picture : range.pictures) {
+                    videoPictureInfoList.add(new VideoPictureInfo(videoPictureInfoList.size(), picture.timestamp,
+                            picture.key));
+                }
+                for (AudioSamplesInfo samples : range.samples) {
+                    audioSamplesInfoList.add(new AudioSamplesInfo(audioSamplesInfoList.size(), samples.timestamp,
+                            audioSamplesOffset, samples.samplesLength));
+                    audioSamplesOffset += samples.samplesLength;
+                }
+                if (!Double.isNaN(range.samplesTimeBase)) {
+                    samplesTimeBase = range.samplesTimeBase;
+                    audioFrameSize = range.audioFrameSize;
+                }
+            }
+
+            return MediaAnalyzer.createMediaInfo(file, scan.keyFrameTimestamps, scan.calculatedFrameRates,
+                    audioSamplesInfoList, videoPictureInfoList, scan.videoPacketTimeBase, scan.audioPacketTimeBase,
+                    samplesTimeBase, audioFrameSize, true);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static RangeResult getResult(Future<RangeResult> future, File file) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while analyzing " + file);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if (cause instanceof Error)
+                throw (Error) cause;
+            throw new RuntimeException("error analyzing " + file, cause);
+        }
+    }
+
+    /**
+     * Splits the video packets into about equally long ranges starting at key frames.
+     *
+     * @param keyFramePacketNumbers the numbers of the video packets that are key frames (ascending)
+     * @return the indices of the key frames where the ranges start (the first range always starts at the first key
+     *         frame and also includes the packets before it)
+     */
+    static int[] splitAtKeyFrames(int[] keyFramePacketNumbers, int nPackets, int nRanges) {
+        if (keyFramePacketNumbers.length == 0)
+            throw new IllegalArgumentException("no key frames");
+        int[] starts = new int[Math.max(1, Math.min(nRanges, keyFramePacketNumbers.length))];
+        int n = 1; // starts[0] = 0
+        for (int i = 1; i < nRanges && n < starts.length; i++) {
+            int target = (int) ((long) i * nPackets / nRanges);
+            int k = Arrays.binarySearch(keyFramePacketNumbers, target);
+            if (k < 0)
+                k = -k - 1;
+            if (k < keyFramePacketNumbers.length && k > starts[n - 1])
+                starts[n++] = k;
+        }
+        return Arrays.copyOf(starts, n);
+    }
+
+    /**
+     * Reads all packets without decoding them to find the key frames and estimate the frame rate (like the single pass
+     * analysis does).
+     */
+    private static Scan scan(File file) throws IOException {
+        IContainer container = open(file);
+        try {
+            int videoStreamIndex = findStream(container, ICodec.Type.CODEC_TYPE_VIDEO);
+            int audioStreamIndex = findStream(container, ICodec.Type.CODEC_TYPE_AUDIO);
+            Scan scan = new Scan();
+            IPacket packet = IPacket.make();
+            while (readNextPacket(container, packet)) {
+                long timestamp = (long) (packet.getTimeStamp() * packet.getTimeBase().getValue() * 1000000L);
+                if (packet.getStreamIndex() == videoStreamIndex) {
+                    if (packet.isKey()) {
+                        scan.keyFrameTimestamps.add(timestamp);
+                        scan.keyFramePacketNumbers.add(scan.videoPacketCount);
+                        if (timestamp > 0)
+                            scan.calculatedFrameRates.add(scan.videoPacketCount * 1000000.0 / (double) timestamp);
+                    }
+                    if (Double.isNaN(scan.videoPacketTimeBase))
+                        scan.videoPacketTimeBase = packet.getTimeBase().getValue();
+                    scan.videoPacketCount++;
+                } else if (audioStreamIndex != -1 && packet.getStreamIndex() == audioStreamIndex) {
+                    if (Double.isNaN(scan.audioPacketTimeBase))
+                        scan.audioPacketTimeBase = packet.getTimeBase().getValue();
+                    scan.audioPacketCount++;
+                }
+            }
+            if (DEBUG)
+                System.out.println("DEBUG: totally " + scan.videoPacketCount + " video packets and "
+                        + scan.audioPacketCount + " audio packets");
+            if (scan.keyFrameTimestamps.size() < 2) {
+                // case less than 2 key frames (not very probable)
+                throw new RuntimeException("less than 2 key frames in video");
+            }
+            return scan;
+        } finally {
+            container.close();
+        }
+    }
+
+    /**
+     * Decodes the packets from the key frame at the start to the key frame at the end (excluded) in file order. The
+     * audio packets in between belong to the range whatever their timestamps are (audio muxed before the next key frame
+     * but timestamped after it is still the audio of this range).
+     */
+    private static RangeResult analyzeRange(File file, long startMicros, long endMicros, boolean first, boolean last)
+            throws IOException {
+        IContainer container = open(file);
+        IStreamCoder audioDecoder = null;
+        IStreamCoder videoDecoder = null;
+        try {
+            int videoStreamIndex = findStream(container, ICodec.Type.CODEC_TYPE_VIDEO);
+            int audioStreamIndex = findStream(container, ICodec.Type.CODEC_TYPE_AUDIO);
+            IStreamCoder videoCoder = container.getStream(videoStreamIndex).getStreamCoder();
+            videoDecoder = IStreamCoder.make(Direction.DECODING, videoCoder);
+            if (videoDecoder.open(null, null) < 0)
+                throw new RuntimeException("error opening video stream decoder");
+            IAudioSamples audioSamples = null;
+            if (audioStreamIndex != -1) {
+                IStreamCoder audioCoder = container.getStream(audioStreamIndex).getStreamCoder();
+                audioDecoder = IStreamCoder.make(Direction.DECODING, audioCoder);
+                if (audioDecoder.open(null, null) < 0)
+                    throw new RuntimeException("error opening audio stream decoder");
+                audioSamples = IAudioSamples.make(4096, audioCoder.getChannels());
+            }
+            IVideoPicture videoPicture = IVideoPicture.make(videoCoder.getPixelType(), videoCoder.getWidth(),
+                    videoCoder.getHeight());
+
+            if (!first && container.seekKeyFrame(-1, 0, startMicros, startMicros, 0) < 0)
+                throw new RuntimeException("error seeking to position " + (startMicros / 1000.0) + "ms");
+
+            RangeResult result = new RangeResult();
+            IPacket packet = IPacket.make();
+            // the packets between where the seek lands and the key frame belong to the range before
+            boolean started = first;
+            while (readNextPacket(container, packet)) {
+                if (packet.getStreamIndex() == videoStreamIndex) {
+                    long timestamp = (long) (packet.getTimeStamp() * packet.getTimeBase().getValue() * 1000000L);
+                    if (packet.isKey() && timestamp >= endMicros)
+                        break; // the next range starts here
+                    if (packet.isKey() && timestamp >= startMicros)
+                        started = true;
+                    if (started)
+                        decodeVideo(videoDecoder, videoPicture, packet, result);
+                } else if (started && audioStreamIndex != -1 && packet.getStreamIndex() == audioStreamIndex) {
+                    decodeAudio(audioDecoder, audioSamples, packet, result);
+                }
+            }
+
+            // the decoder holds back the last pictures of the range (the single pass gets them with the packets of the
+            // next range, or by draining the decoder at the end of the file), so it is drained
+            IPacket emptyPacket = IPacket.make();
+            for (int i = 0; i < MAX_DRAINED_PICTURES; i++) {
+                videoPicture.setComplete(false, Type.NONE, -1, -1, -1);
+                if (videoDecoder.decodeVideo(videoPicture, emptyPacket, 0) < 0 || !videoPicture.isComplete())
+                    break;
+                result.pictures.add(new VideoPictureInfo(result.pictures.size(), videoPicture.getTimeStamp(),
+                        videoPicture.isKey()));
+            }
+            return result;
+        } finally {
+            if (audioDecoder != null && audioDecoder.isOpen())
+                audioDecoder.close();
+            if (videoDecoder != null && videoDecoder.isOpen())
+                videoDecoder.close();
+            container.close();
+        }
+    }
+
+    private static void decodeVideo(IStreamCoder videoDecoder, IVideoPicture videoPicture, IPacket packet,
+            RangeResult result) {
+        int offset = 0;
+        while (offset < packet.getSize()) {
+            int bytesDecoded = videoDecoder.decodeVideo(videoPicture, packet, offset);
+            if (bytesDecoded < 0)
+                throw new RuntimeException("error decoding video");
+            offset += bytesDecoded;
+
+            if (videoPicture.isComplete()) {
+                result.pictures.add(new VideoPictureInfo(result.pictures.size(), videoPicture.getTimeStamp(),
+                        videoPicture.isKey()));
+            }
+        }
+    }
+
+    private static void decodeAudio(IStreamCoder audioDecoder, IAudioSamples audioSamples, IPacket packet,
+            RangeResult result) {
+        int offset = 0;
+        while (offset < packet.getSize()) {
+            int bytesDecoded = audioDecoder.decodeAudio(audioSamples, packet, offset);
+            if (bytesDecoded < 0) {
+                if (bytesDecoded == MediaAnalyzer.MP2_HEADER_MISSING)
+                    break; // assume it was consumed to skip it
+                throw new RuntimeException("error decoding audio");
+            }
+            offset += bytesDecoded;
+
+            if (audioSamples.isComplete()) {
+                // the offsets are only relative to the range until the ranges are merged
+                result.samples.add(new AudioSamplesInfo(result.samples.size(), audioSamples.getTimeStamp(), 0,
+                        audioSamples.getSize()));
+                result.samplesTimeBase = audioSamples.getTimeBase().getValue();
+                result.audioFrameSize = audioSamples.getSize();
+                break;
+            }
+        }
+    }
+
+    private static IContainer open(File file) throws IOException {
+        IContainer container = IContainer.make();
+        if (container.open(new RandomAccessFile(file, "r"), IContainer.Type.READ, null) < 0)
+            throw new RuntimeException("error opening file");
+        return container;
+    }
+
+    /**
+     * @return the index of the (last) stream of the type or -1 if there is none
+     */
+    private static int findStream(IContainer container, ICodec.Type type) {
+        int index = -1;
+        for (int i = 0; i < container.getNumStreams(); i++) {
+            if (container.getStream(i).getStreamCoder().getCodecType() == type)
+                index = i;
+        }
+        if (index == -1 && type == ICodec.Type.CODEC_TYPE_VIDEO)
+            throw new IllegalStateException("no video stream found");
+        return index;
+    }
+
+    /**
+     * @return false at the end of the media
+     */
+    private static boolean readNextPacket(IContainer container, IPacket packet) {
+        int errorNum = container.readNextPacket(packet);
+        if (errorNum >= 0)
+            return true;
+        if (errorNum == END_OF_MEDIA || errorNum == OPERATION_NOT_PERMITTED)
+            return false;
+        IError error = IError.make(errorNum);
+        throw new RuntimeException("error reading packet: " + error.getDescription() + "(" + errorNum + ")");
+    }
+}
@@ -6,22 +6,97 @@ package exmoplay.access;
 
 import java.awt.Image;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 
+import com.xuggle.xuggler.IError;
+import com.xuggle.xuggler.IPixelFormat;
 import com.xuggle.xuggler.IVideoPicture;
+import com.xuggle.xuggler.IVideoResampler;
 
 /**
  * Represents the memory unit that stores one image of one frame of the media file. This class can be passed around
  * between different actors.
+ * 
+ * The picture is kept in the pixel format of the decoder and only converted into an image when the image is requested
+ * (frames that are skipped when playing fast are never converted).
  */
 public class VideoBuffer {
 
-    IVideoPicture videoPicture;
+    /**
+     * Converts decoded pictures to BGR24 through one scratch picture, shared by all frames of a stream (of the same
+     * output size), so a frame only holds its decoded picture and its image.
+     */
+    static class Converter {
+        private final IVideoResampler resampler;
+        private final IVideoPicture bgrPicture;
+
+        Converter(IVideoResampler resampler) {
+            this.resampler = resampler;
+            bgrPicture = IVideoPicture.make(IPixelFormat.Type.BGR24, resampler.getOutputWidth(),
+                    resampler.getOutputHeight());
+        }
+
+        synchronized void convert(IVideoPicture picture, byte[] data) {
+            int errorCode = resampler.resample(bgrPicture, picture);
+            if (errorCode < 0) {
+                IError error = IError.make(errorCode);
+                throw new RuntimeException("could not resample video, due to: " + error.getDescription() + " ("
+                        + errorCode + ")");
+            }
+            bgrPicture.get(0, data, 0, data.length);
+        }
+
+        void delete() {
+            bgrPicture.delete();
+        }
+    }
+
+    IVideoPicture picture; // as decoded (BGR24 already if there is no converter)
+    Converter converter; // null if the decoder produces BGR24 of the output size
     BufferedImage bufferedImage;
+    private boolean converted = false;
 
     public VideoBuffer() {
     }
 
-    public Image getImage() {
+    /**
+     * Called when a new picture was decoded into this buffer (the image is outdated).
+     */
+    synchronized void pictureDecoded() {
+        converted = false;
+    }
+
+    /**
+     * @return the width of the image (may be smaller than the video)
+     */
+    public int getWidth() {
+        return bufferedImage.getWidth();
+    }
+
+    /**
+     * @return the height of the image (may be smaller than the video)
+     */
+    public int getHeight() {
+        return bufferedImage.getHeight();
+    }
+
+    /**
+     * @return the image of the picture (converted on the first call after decoding)
+     */
+    public synchronized Image getImage() {
+        if (!converted) {
+            convert();
+            converted = true;
+        }
         return bufferedImage;
     }
+
+    private void convert() {
+        // same byte order as BGR24, so the picture can be copied as it is
+        byte[] data = ((DataBufferByte) bufferedImage.getRaster().getDataBuffer()).getData();
+        if (converter != null)
+            converter.convert(picture, data);
+        else
+            picture.get(0, data, 0, data.length);
+    }
 }
@@ -5,10 +5,13 @@
 package exmoplay.access;
 
 import java.awt.Dimension;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
@@ -19,7 +22,6 @@ import com.xuggle.xuggler.IAudioSamples;
 import com.xuggle.xuggler.IAudioSamples.Format;
 import com.xuggle.xuggler.ICodec;
 import com.xuggle.xuggler.IContainer;
-import com.xuggle.xuggler.IError;
 import com.xuggle.xuggler.IPacket;
 import com.xuggle.xuggler.IPixelFormat;
 import com.xuggle.xuggler.IPixelFormat.Type;
@@ -28,15 +30,20 @@ import com.xuggle.xuggler.IStreamCoder;
 import com.xuggle.xuggler.IStreamCoder.Direction;
 import com.xuggle.xuggler.IVideoPicture;
 import com.xuggle.xuggler.IVideoResampler;
-import com.xuggle.xuggler.video.ConverterFactory;
-import com.xuggle.xuggler.video.IConverter;
-
-import exmoplay.access.MediaInfo.AudioSamplesInfo;
-import exmoplay.access.MediaInfo.VideoPictureInfo;
 
 public class XugglerMediaInputStream {
-    private static final boolean DEBUG = true;
-    private static final boolean TRACE = true;
+    private static final boolean DEBUG = false;
+    private static final boolean TRACE = false;
+
+    // estimated cost of seeking (including reopening the decoders) in decoded frames
+    private static final int SEEK_COST_FRAMES = 4;
+    // more pictures held back than any decoder delays (the decoder is considered broken then)
+    private static final int MAX_FLUSHED_PICTURES = 32;
+    // Xuggler cannot reset a decoder (avcodec_flush_buffers), draining it only works if the key frame seeked to
+    // replaces every reference: for codecs without B-frames and with a single reference frame
+    private static final EnumSet<ICodec.ID> FLUSHABLE_CODECS = EnumSet.of(ICodec.ID.CODEC_ID_FLV1,
+            ICodec.ID.CODEC_ID_H263, ICodec.ID.CODEC_ID_VP6, ICodec.ID.CODEC_ID_VP6F, ICodec.ID.CODEC_ID_VP6A,
+            ICodec.ID.CODEC_ID_MJPEG);
 
     private final File file;
 
@@ -49,9 +56,8 @@ public class XugglerMediaInputStream {
     private final IStreamCoder originalVideoCoder;
     private IStreamCoder audioCoder;
     private IStreamCoder videoCoder;
-    private final IVideoResampler videoResampler;
-    private final IVideoPicture resamplingTempPic;
-    private final IConverter javaImageConverter;
+    private VideoBuffer.Converter videoConverter; // null if the decoded pictures need no conversion
+    private Dimension outputSize; // size of the images of frames created from now on
 
     private final PacketSource packetSource;
 
@@ -67,6 +73,7 @@ public class XugglerMediaInputStream {
     private long intendedAudioPosition = -1;
     private long intendedVideoPosition = -1;
     private long officialVideoPosition = 0;
+    private long nextFrameNumber = -1; // frame number the next call of readFrame returns (-1 if unknown)
     private long targetVideoTimestamp = -1;
     private long targetAudioTimestamp = -1;
     private int targetAudioBytePos = -1;
@@ -78,8 +85,19 @@ public class XugglerMediaInputStream {
     private int bytesPerSample;
 
     private List<IVideoPicture> createdVideoPictures = new ArrayList<IVideoPicture>();
+    private List<VideoBuffer.Converter> createdConverters = new ArrayList<VideoBuffer.Converter>();
+
+    private MediaInfo mediaInfo; // replaced while the analysis of the video goes on (see setMediaInfo)
+    private long[] keyFrameNumbers;
 
-    private final MediaInfo mediaInfo;
+    private boolean flushDecoders = false; // see setFlushDecoders (cleared if flushing failed)
+    private boolean flushedSinceLastPicture = false;
+    private long lastPositionMillis = -1; // of the last call of setPosition
+    private IVideoPicture flushPicture = null;
+
+    private long seeks = 0;
+    private long seeksAvoided = 0;
+    private long discardedVideoFrames = 0;
 
     private final IPacket emptyPacket = IPacket.make();
 
@@ -159,6 +177,7 @@ public class XugglerMediaInputStream {
     public XugglerMediaInputStream(File file, MediaInfo mediaInfo) throws IOException {
         this.file = file;
         this.mediaInfo = mediaInfo;
+        this.keyFrameNumbers = mediaInfo.getKeyFrameNumbers();
         // open the media file
         container = IContainer.make();
         int resultCode = container.open(new RandomAccessFile(file, "r"), IContainer.Type.READ, null);
@@ -238,23 +257,8 @@ public class XugglerMediaInputStream {
         }
 
         // initialize resampler
-        if (videoCoder.getPixelType() != IPixelFormat.Type.BGR24) {
-            // if the video stream is not in BGR24, we'll have to convert it
-            videoResampler = IVideoResampler.make(videoCoder.getWidth(), videoCoder.getHeight(),
-                    IPixelFormat.Type.BGR24, videoCoder.getWidth(), videoCoder.getHeight(), videoCoder.getPixelType());
-            if (videoResampler == null)
-                throw new BadVideoException("Could not create video sampler. Probably unsupported color space");
-            resamplingTempPic = IVideoPicture.make(videoCoder.getPixelType(), videoCoder.getWidth(),
-                    videoCoder.getHeight());
-        } else {
-            videoResampler = null;
-            resamplingTempPic = null;
-        }
-
-        // initialize java image converter
-        javaImageConverter = ConverterFactory.createConverter(ConverterFactory.XUGGLER_BGR_24,
-                IPixelFormat.Type.BGR24,
-                videoCoder.getWidth(), videoCoder.getHeight());
+        outputSize = new Dimension(videoCoder.getWidth(), videoCoder.getHeight());
+        videoConverter = createConverter(outputSize);
 
         // initialize buffers
         if (audioStream != null)
@@ -266,22 +270,41 @@ public class XugglerMediaInputStream {
     }
 
     private void initDecoders() {
-        if (audioCoder != null && audioCoder.isOpen())
-            audioCoder.close();
+        initAudioDecoder();
+
         if (videoCoder != null && videoCoder.isOpen())
             videoCoder.close();
+        videoCoder = IStreamCoder.make(Direction.DECODING, originalVideoCoder);
+        int videoStreamOpenResultCode = videoCoder.open(null, null);
+        if (videoStreamOpenResultCode < 0)
+            throw new IllegalStateException("Could not open video stream (error " + videoStreamOpenResultCode + ")");
+    }
 
+    private void initAudioDecoder() {
+        if (audioCoder != null && audioCoder.isOpen())
+            audioCoder.close();
         if (originalAudioCoder != null) {
             audioCoder = IStreamCoder.make(Direction.DECODING, originalAudioCoder);
             int audioStreamOpenResultCode = audioCoder.open(null, null);
             if (audioStreamOpenResultCode < 0)
                 throw new IllegalStateException("Could not open audio stream (error " + audioStreamOpenResultCode + ")");
         }
+    }
 
-        videoCoder = IStreamCoder.make(Direction.DECODING, originalVideoCoder);
-        int videoStreamOpenResultCode = videoCoder.open(null, null);
-        if (videoStreamOpenResultCode < 0)
-            throw new IllegalStateException("Could not open video stream (error " + videoStreamOpenResultCode + ")");
+    /**
+     * @return a converter of the decoded pictures to BGR24 of the given size (null if they need no conversion)
+     */
+    private VideoBuffer.Converter createConverter(Dimension size) {
+        if (videoCoder.getPixelType() == IPixelFormat.Type.BGR24 && size.width == videoCoder.getWidth()
+                && size.height == videoCoder.getHeight())
+            return null;
+        IVideoResampler resampler = IVideoResampler.make(size.width, size.height, IPixelFormat.Type.BGR24,
+                videoCoder.getWidth(), videoCoder.getHeight(), videoCoder.getPixelType());
+        if (resampler == null)
+            throw new BadVideoException("Could not create video sampler. Probably unsupported color space");
+        VideoBuffer.Converter converter = new VideoBuffer.Converter(resampler);
+        createdConverters.add(converter);
+        return converter;
     }
 
     private static AudioFormat createJavaSoundFormat(IStreamCoder audioCoder) {
@@ -421,11 +444,8 @@ public class XugglerMediaInputStream {
             }
         }
 
-        IVideoPicture picture;
-        if (videoResampler == null)
-            picture = mf.video.videoPicture;
-        else
-            picture = resamplingTempPic;
+        // decoded in the native pixel format (converted only when the image is requested)
+        IVideoPicture picture = mf.video.picture;
 
         boolean videoComplete = false;
 
@@ -435,8 +455,22 @@ public class XugglerMediaInputStream {
                 videoPacket = videoPacketReadPartially;
             } else {
                 videoPacket = packetSource.readNextVideoPacket();
-                if (videoPacket == null)
+                if (videoPacket == null) {
+                    // at the end of the file the decoder still holds back the last pictures (counted by the analysis)
+                    picture.setComplete(false, Type.NONE, -1, -1, -1);
+                    if (videoCoder.decodeVideo(picture, emptyPacket, 0) < 0 || !picture.isComplete())
+                        break;
+                    if (intendedVideoPosition != -1 && picture.getTimeStamp() < targetVideoTimestamp) {
+                        skippedVideoFrames++;
+                        discardedVideoFrames++;
+                        continue;
+                    }
+                    intendedVideoPosition = -1;
+                    flushedSinceLastPicture = false;
+                    mf.video.pictureDecoded();
+                    videoComplete = true;
                     break;
+                }
             }
             if (videoPacket != null) {
                 //long packetTimestamp = (long) (videoPacket.getTimeStamp() * videoPacket.getTimeBase().getValue() * 1000.0);
@@ -446,6 +480,21 @@ public class XugglerMediaInputStream {
                         picture.setComplete(false, Type.NONE, -1, -1, -1);
                     }
                     int bytesDecoded = videoCoder.decodeVideo(picture, videoPacket, videoPacketOffset);
+                    if (bytesDecoded < 0 && flushedSinceLastPicture) {
+                        // the flushed decoder cannot cope with the new position: position again with reopened
+                        // decoders and read the whole frame from there (its audio was already read from the flushed
+                        // decoders)
+                        if (DEBUG) {
+                            System.err.println("WARN: decoding failed after flushing the decoders (error "
+                                    + bytesDecoded + "), reopening them on seeks from now on");
+                        }
+                        flushDecoders = false;
+                        if (videoPacket != videoPacketReadPartially)
+                            videoPacket.delete(); // otherwise deleted when seeking
+                        seekTo(lastPositionMillis);
+                        readFrame(mf);
+                        return;
+                    }
                     if (bytesDecoded < 0) {
                         throw new RuntimeException("could not decode video. Error code " + bytesDecoded);
                     }
@@ -477,37 +526,15 @@ public class XugglerMediaInputStream {
                             //picture.setComplete(false, videoCoder.getPixelType(), videoCoder.getWidth(),
                             //        videoCoder.getHeight(), 0);
                             skippedVideoFrames++;
+                            discardedVideoFrames++;
                             if (videoPacketOffset == 0) // because 0 means that it was processed completely (see if/else further up)
                                 break;
                             continue;
                         }
                         intendedVideoPosition = -1;
+                        flushedSinceLastPicture = false;
 
-                        IVideoPicture newPic;
-                        /*
-                         * If the resampler is not null, that means we didn't get the
-                         * video in BGR24 format and
-                         * need to convert it into BGR24 format.
-                         */
-                        if (videoResampler != null) {
-                            // we must resample
-                            newPic = mf.video.videoPicture;
-                            int errorCode = videoResampler.resample(newPic, picture);
-                            if (errorCode < 0) {
-                                IError error = IError.make(errorCode);
-                                throw new RuntimeException("could not resample video from: "
-                                        + file + ", due to: " + error.getDescription() + " (" + errorCode + ")");
-                            }
-                        } else {
-                            newPic = picture;
-                        }
-
-                        // TODO this security check should not be necessary, remove later
-                        //if (newPic.getPixelType() != IPixelFormat.Type.BGR24)
-                        //    throw new RuntimeException("could not decode video" +
-                        //            " as BGR 24 bit data in: " + file);
-
-                        mf.video.bufferedImage = javaImageConverter.toImage(newPic);
+                        mf.video.pictureDecoded();
 
                         //System.out.println("Received a video picture (" + pictureTimestamp + ")");
                         videoComplete = true;
@@ -524,8 +551,11 @@ public class XugglerMediaInputStream {
 
         if (!videoComplete) {
             mf.endOfMedia = true;
+            nextFrameNumber = -1;
         } else {
-            mf.timestamp = mf.video.videoPicture.getTimeStamp() * mediaInfo.pictureTimeBase * 1000L;
+            if (nextFrameNumber != -1)
+                nextFrameNumber++;
+            mf.timestamp = picture.getTimeStamp() * mediaInfo.pictureTimeBase * 1000L;
             officialVideoPosition = (long) (mf.timestamp + frameTime);
         }
 
@@ -539,6 +569,77 @@ public class XugglerMediaInputStream {
         }
     }
 
+    /**
+     * Reads only the key frame at or before the given position (e.g. for scrubbing): seeks to it and decodes its packet,
+     * without decoding forward to the exact frame and without audio (the audio of the frame is silent). The stream is
+     * not positioned afterwards, so {@link #setPosition(long)} has to be called before reading on.
+     * 
+     * @return the number of the key frame (-1 at the end of the media)
+     */
+    public long readKeyFrame(long millis, MediaFrame mf) {
+        long targetFrame = (long) Math.round(millis / 1000.0 * videoFormat.getFrameRate());
+        int i = Arrays.binarySearch(keyFrameNumbers, targetFrame);
+        long keyFrame = i >= 0 ? keyFrameNumbers[i] : (i == -1 ? 0 : keyFrameNumbers[-i - 2]);
+        long keyFrameMillis = (long) (keyFrame * 1000.0 / videoFormat.getFrameRate());
+        seekToKeyFrame(keyFrameMillis);
+        // not positioned at any frame any more
+        nextFrameNumber = -1;
+        intendedVideoPosition = -1;
+        intendedAudioPosition = -1;
+        targetVideoTimestamp = -1;
+        targetAudioTimestamp = -1;
+
+        mf.endOfMedia = false;
+        mf.audio.size = calculateAudioFrameSize(keyFrameMillis);
+        Arrays.fill(mf.audio.audioData, 0, mf.audio.size, (byte) 0);
+
+        IVideoPicture picture = mf.video.picture;
+        if (picture.isComplete())
+            picture.setComplete(false, Type.NONE, -1, -1, -1);
+        IPacket videoPacket = packetSource.readNextVideoPacket();
+        while (videoPacket != null && !picture.isComplete()) {
+            int offset = 0;
+            while (offset < videoPacket.getSize() && !picture.isComplete()) {
+                int bytesDecoded = videoCoder.decodeVideo(picture, videoPacket, offset);
+                if (bytesDecoded < 0 && flushedSinceLastPicture) {
+                    if (DEBUG) {
+                        System.err.println("WARN: decoding failed after flushing the decoders (error " + bytesDecoded
+                                + "), reopening them on seeks from now on");
+                    }
+                    flushDecoders = false;
+                    videoPacket.delete();
+                    return readKeyFrame(millis, mf);
+                }
+                if (bytesDecoded < 0)
+                    throw new RuntimeException("could not decode video. Error code " + bytesDecoded);
+                offset += bytesDecoded;
+            }
+            videoPacket.delete();
+            if (!picture.isComplete()) {
+                // the decoder holds the key frame back (until the following frames arrive), so it is drained instead
+                int result = videoCoder.decodeVideo(picture, emptyPacket, 0);
+                if (result < 0 || !picture.isComplete()) {
+                    // some decoders need more than one packet to finish a picture
+                    videoPacket = packetSource.readNextVideoPacket();
+                    continue;
+                }
+            }
+            videoPacket = null;
+        }
+        if (videoPacket != null)
+            videoPacket.delete();
+        flushedSinceLastPicture = false;
+
+        if (!picture.isComplete()) {
+            mf.endOfMedia = true;
+            return -1;
+        }
+        mf.video.pictureDecoded();
+        mf.timestamp = picture.getTimeStamp() * mediaInfo.pictureTimeBase * 1000L;
+        officialVideoPosition = (long) (mf.timestamp + frameTime);
+        return keyFrame;
+    }
+
     private int calculateAudioFrameSize(long millis) {
         long frameNum = (long) Math.round(millis / 1000.0 * videoFormat.getFrameRate());
         long startAudioBytePos = Math.round(frameNum * exactAudioFramesSampleNum) * bytesPerSample;
@@ -546,12 +647,82 @@ public class XugglerMediaInputStream {
         return (int) (endAudioBytePos - startAudioBytePos);
     }
 
+    /**
+     * Like {@link #setPosition(long)}, but always seeks (e.g. for measuring seeks and decoding after them).
+     * 
+     * @return the position in milliseconds
+     */
+    public long seekTo(long millis) {
+        nextFrameNumber = -1; // decoding forward is never considered then
+        return setPosition(millis);
+    }
+
+    /**
+     * Positions the stream at the frame of the given time. Either seeks to the key frame before it or, if that is
+     * cheaper, decodes forward from the current position (see {@link #getSeeksAvoided()}).
+     * 
+     * @return the position in milliseconds
+     */
     public long setPosition(long millis) {
+        lastPositionMillis = millis;
+        long finalFrame = (long) Math.round(millis / 1000.0 * videoFormat.getFrameRate());
+        if (finalFrame == nextFrameNumber) {
+            // already there (e.g. reading the next block during playback)
+            seeksAvoided++;
+            return millis;
+        }
+        boolean decodeForward = isDecodingForwardCheaper(finalFrame);
+        if (decodeForward)
+            seeksAvoided++;
+        else
+            seekToKeyFrame(millis);
+
+        targetVideoTimestamp = mediaInfo.getVideoPictureTimestamp(finalFrame);
+        nextFrameNumber = targetVideoTimestamp != -1 ? finalFrame : -1;
+
+        intendedVideoPosition = millis;
+        officialVideoPosition = millis;
+        if (audioStream != null) {
+            intendedAudioPosition = millis;
+            long targetSamplePos = (long) Math.round(finalFrame * exactAudioFramesSampleNum) * bytesPerSample;
+            int targetSample = mediaInfo.findAudioSamplesContainingOffset(targetSamplePos);
+            targetAudioTimestamp = mediaInfo.getAudioSamplesTimestamp(targetSample); //(long) Math.floor(targetSample / audioFrameSize);
+            targetAudioBytePos = (int) (targetSamplePos - mediaInfo.getAudioSamplesOffset(targetSample)); //(int) (targetSample % audioFrameSize);
+            if (targetAudioBytePos > mediaInfo.getAudioSamplesLength(targetSample))
+                targetAudioTimestamp = -1;
+            if (decodeForward && samples.isComplete() && samples.getTimeStamp() == targetAudioTimestamp) {
+                // the target is in the samples decoded last
+                intendedAudioPosition = -1;
+                samplesBytePos = targetAudioBytePos;
+            } else {
+                samplesBytePos = 0;
+            }
+        }
+        return millis;
+    }
+
+    /**
+     * Compares the frames to decode when continuing from the current position with the frames to decode after seeking
+     * to the key frame before the target (plus the cost of seeking itself).
+     */
+    private boolean isDecodingForwardCheaper(long targetFrame) {
+        if (nextFrameNumber == -1 || targetFrame < nextFrameNumber)
+            return false;
+        int i = Arrays.binarySearch(keyFrameNumbers, targetFrame);
+        if (i == -1)
+            return false; // no key frame known before the target
+        long keyFrame = i >= 0 ? keyFrameNumbers[i] : keyFrameNumbers[-i - 2];
+        long forwardCost = targetFrame - nextFrameNumber;
+        long seekCost = targetFrame - keyFrame + SEEK_COST_FRAMES;
+        return forwardCost <= seekCost;
+    }
+
+    private void seekToKeyFrame(long millis) {
         //TODO possibly implement alternative seeking method that preserves audio packet in front of key video packet (1. search backwards to video keyframe, 2. search backwards to audio keyframe)
         //     maybe check how seeking is done in Xuggler and maybe propose to mailing list (after checking for discussions of course)
-        long micros = (millis - (long) frameTime * 3) * 1000; // TODO remove *3 again (was needed to test missing skipping)
-        if (micros < 0)
-            micros = 0;
+        // half a frame of tolerance, so that seeking to the time of a key frame starts decoding at that key frame
+        // (positions count from the first key frame like the frame numbers, see MediaInfo.getKeyFrameNumbers())
+        long micros = mediaInfo.getStartTimestamp() + millis * 1000 + (long) (frameTime * 500);
         /*IIndexEntry indexEntry = videoStream.findTimeStampEntryInIndex(micros, 0);
         long targetMicros;
         if (indexEntry != null)
@@ -569,6 +740,7 @@ public class XugglerMediaInputStream {
             throw new IllegalStateException("Seek to position " + millis + "ms (actual " + targetTimestamp
                     + " microseconds)failed with code " + statusCode
                     + " in file " + file);
+        seeks++;
         if (videoPacketReadPartially != null)
             videoPacketReadPartially.delete();
         videoPacketReadPartially = null;
@@ -577,54 +749,122 @@ public class XugglerMediaInputStream {
         audioPacketReadPartially = null;
         audioPacketOffset = 0;
         videoPacketOffset = 0;
-        //long initialFrame = (long) Math.floor(targetMicros / 1000000.0 * videoFormat.getFrameRate());
-        long finalFrame = (long) Math.round(millis / 1000.0 * videoFormat.getFrameRate());
-        VideoPictureInfo videoInfo = mediaInfo.findVideoPictureInfoByFrameNumber(finalFrame);
-        if (videoInfo != null)
-            targetVideoTimestamp = videoInfo.timestamp;
-        else
-            targetVideoTimestamp = -1;
-        //targetVideoFramesToSkip = (int) (finalFrame - initialFrame);
-        double exactFrameTime = 1000.0 * finalFrame / videoFormat.getFrameRate();
 
         packetSource.reset();
-        //emptyDecoders(); did not work, now doing the following instead
-        initDecoders();
-        samplesBytePos = 0;
-        intendedVideoPosition = millis;
-        officialVideoPosition = millis;
-        if (audioStream != null) {
-            intendedAudioPosition = millis;
-            int audioFrameSize = mediaInfo.audioFrameSize;
-            long targetSamplePos = (long) Math.round(finalFrame * exactAudioFramesSampleNum) * bytesPerSample;
-            AudioSamplesInfo targetSample = mediaInfo.findAudioSamplesInfoContainingOffset(targetSamplePos);
-            targetAudioTimestamp = targetSample.timestamp; //(long) Math.floor(targetSample / audioFrameSize);
-            targetAudioBytePos = (int) (targetSamplePos - targetSample.samplesOffset); //(int) (targetSample % audioFrameSize);
-            if (targetAudioBytePos > targetSample.samplesLength)
-                targetAudioTimestamp = -1;
+        if (flushDecoders && FLUSHABLE_CODECS.contains(videoCoder.getCodecID()) && flushDecoders()) {
+            flushedSinceLastPicture = true;
+        } else {
+            initDecoders();
+            flushedSinceLastPicture = false;
         }
-        return millis;
     }
 
-    private void emptyDecoders() {
-        // call decoders with an empty packet until they return an error to pull out any decoded stuff that is still hanging around
-        int result = 0;
-        int videoFramesPulled = -1;
-        IPacket packet = packetSource.peekNextVideoPacket();
-        IVideoPicture picture = resamplingTempPic;
-        while (result >= 0 && packet.getTimeStamp() != picture.getTimeStamp()) {
-            int offset = 0;
-            while (result >= 0 && offset < packet.getSize()) {
-                result = videoCoder.decodeVideo(resamplingTempPic, packet, offset);
-                if (result >= 0)
-                    offset += result;
-                if (picture.isComplete())
-                    break;
+    /**
+     * Resets the decoders without reopening the video decoder (which is expensive): drains the pictures the video
+     * decoder still holds back by decoding empty packets, drops the partially decoded audio samples and reopens the
+     * audio decoder (which is cheap).
+     * 
+     * @return false if the video decoder misbehaved (the decoders have to be reopened then)
+     */
+    private boolean flushDecoders() {
+        if (flushPicture == null)
+            flushPicture = IVideoPicture.make(videoCoder.getPixelType(), videoCoder.getWidth(), videoCoder.getHeight());
+        for (int i = 0; i < MAX_FLUSHED_PICTURES; i++) {
+            if (flushPicture.isComplete())
+                flushPicture.setComplete(false, Type.NONE, -1, -1, -1);
+            int result = videoCoder.decodeVideo(flushPicture, emptyPacket, 0);
+            if (result < 0) {
+                if (DEBUG) {
+                    System.err.println("WARN: flushing the video decoder failed (error " + result
+                            + "), reopening the decoders on seeks from now on");
+                }
+                flushDecoders = false;
+                return false;
+            }
+            if (!flushPicture.isComplete()) {
+                if (samples != null && samples.isComplete())
+                    samples.setComplete(false, -1, -1, -1, Format.FMT_NONE, -1);
+                initAudioDecoder();
+                if (DEBUG && i > 0)
+                    System.out.println("DEBUG: pulled " + i + " old video frames out of decoder!");
+                return true;
             }
-            videoFramesPulled++;
         }
-        if (DEBUG && videoFramesPulled > 0)
-            System.out.println("DEBUG: pulled " + videoFramesPulled + " old video frames out of decoder!");
+        if (DEBUG) {
+            System.err.println("WARN: the video decoder did not stop returning pictures when flushed, reopening the"
+                    + " decoders on seeks from now on");
+        }
+        flushDecoders = false;
+        return false;
+    }
+
+    /**
+     * By default, the decoders are reopened on every seek. Enabling flushing keeps the video decoder open instead, but
+     * only for codecs where draining it leaves no stale reference frames behind (it is disabled automatically for
+     * decoders that fail with it).
+     */
+    public void setFlushDecoders(boolean flushDecoders) {
+        this.flushDecoders = flushDecoders;
+    }
+
+    /**
+     * Sets the size the images of frames created from now on are shown in. The video is scaled down (keeping the aspect
+     * ratio) as far as it still covers that size, so the images are never scaled up when painted. Videos smaller than
+     * that keep their size, as do frames created before.
+     *
+     * @param maxSize the size the images are shown in (null for the size of the video)
+     */
+    public void setMaxOutputSize(Dimension maxSize) {
+        int width = videoCoder.getWidth();
+        int height = videoCoder.getHeight();
+        if (maxSize != null && maxSize.width < width && maxSize.height < height) {
+            if (!IVideoResampler.isSupported(IVideoResampler.Feature.FEATURE_IMAGERESCALING)) {
+                if (DEBUG) {
+                    System.err.println("WARN: scaling not supported by this Xuggler build, using the size of the"
+                            + " video");
+                }
+            } else {
+                double scale = Math.max((double) maxSize.width / width, (double) maxSize.height / height);
+                width = Math.max(1, (int) Math.round(width * scale));
+                height = Math.max(1, (int) Math.round(height * scale));
+            }
+        }
+        if (width == outputSize.width && height == outputSize.height)
+            return;
+        // frames created before keep a reference to the old converter
+        videoConverter = createConverter(new Dimension(width, height));
+        outputSize = new Dimension(width, height);
+        if (DEBUG) {
+            System.out.println("DEBUG: output size of " + file.getName() + " is " + width + "x" + height + " now");
+        }
+    }
+
+    /**
+     * @return the size of the images of frames created from now on
+     */
+    public Dimension getOutputSize() {
+        return new Dimension(outputSize);
+    }
+
+    /**
+     * @return how many times the stream was actually positioned with a seek
+     */
+    public long getSeeks() {
+        return seeks;
+    }
+
+    /**
+     * @return how many times setting the position did not seek, because decoding forward was cheaper
+     */
+    public long getSeeksAvoided() {
+        return seeksAvoided;
+    }
+
+    /**
+     * @return how many video frames were decoded only to be discarded (to reach the target of a position change)
+     */
+    public long getDiscardedVideoFrames() {
+        return discardedVideoFrames;
     }
 
     public long getPosition() {
@@ -637,6 +877,18 @@ public class XugglerMediaInputStream {
         return officialVideoPosition;
     }
 
+    /**
+     * Replaces the media info by a newer one of the same video, while it is still being analyzed (see
+     * {@link MediaAnalysis}). The video format (and frame rate) stays the one of the first media info.
+     */
+    public void setMediaInfo(MediaInfo mediaInfo) {
+        if (mediaInfo.numberOfVideoFrames < this.mediaInfo.numberOfVideoFrames)
+            throw new IllegalArgumentException("the media info covers less of the video than before: "
+                    + mediaInfo.numberOfVideoFrames + " < " + this.mediaInfo.numberOfVideoFrames + " frames");
+        this.mediaInfo = mediaInfo;
+        this.keyFrameNumbers = mediaInfo.getKeyFrameNumbers();
+    }
+
     public long getDuration() {
         return (long) (mediaInfo.numberOfVideoFrames / videoFormat.getFrameRate() * 1000000L);
     }
@@ -653,9 +905,15 @@ public class XugglerMediaInputStream {
         AudioBuffer audio = new AudioBuffer();
         audio.audioData = new byte[(int) audioFramesSampleNum * bytesPerSample];
         VideoBuffer video = new VideoBuffer();
-        video.videoPicture = IVideoPicture.make(IPixelFormat.Type.BGR24, videoCoder.getWidth(),
-                videoCoder.getHeight());
-        createdVideoPictures.add(video.videoPicture.copyReference());
+        if (videoConverter != null) {
+            video.picture = IVideoPicture.make(videoCoder.getPixelType(), videoCoder.getWidth(),
+                    videoCoder.getHeight());
+            video.converter = videoConverter;
+        } else {
+            video.picture = IVideoPicture.make(IPixelFormat.Type.BGR24, outputSize.width, outputSize.height);
+        }
+        createdVideoPictures.add(video.picture.copyReference());
+        video.bufferedImage = new BufferedImage(outputSize.width, outputSize.height, BufferedImage.TYPE_3BYTE_BGR);
         return new MediaFrame(audio, video);
     }
 
@@ -665,5 +923,9 @@ public class XugglerMediaInputStream {
         container.close();
         for (IVideoPicture p : createdVideoPictures)
             p.delete();
+        for (VideoBuffer.Converter c : createdConverters)
+            c.delete();
+        if (flushPicture != null)
+            flushPicture.delete();
     }
 }
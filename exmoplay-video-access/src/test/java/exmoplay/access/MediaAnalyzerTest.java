@@ -6,6 +6,7 @@ package exmoplay.access;
 
 import java.io.File;
 
+import org.junit.Assert;
 import org.junit.Test;
 
 import exmoplay.access.MediaAnalyzer;
@@ -29,4 +30,24 @@ public class MediaAnalyzerTest {
         MediaInfo info = MediaAnalyzer.analyze(file);
 
     }
+
+    @Test
+    public void testParallelMatchesSinglePass() throws Exception {
+        File file = new File("/home/sberner/Desktop/10-31.03.09.flv");
+
+        MediaInfo single = MediaAnalyzer.analyze(file, null, 1);
+        // directly, as MediaAnalyzer falls back to the single pass if the parallel analysis fails
+        MediaInfo parallel = ParallelMediaAnalyzer.analyze(file, 4);
+
+        Assert.assertEquals(single.keyFrameTimestamps, parallel.keyFrameTimestamps);
+        Assert.assertEquals(single.numberOfVideoFrames, parallel.numberOfVideoFrames);
+        Assert.assertEquals(single.videoFrameRate, parallel.videoFrameRate, 0.0);
+        Assert.assertEquals(single.audioFrameSize, parallel.audioFrameSize);
+        Assert.assertEquals(single.samplesTimeBase, parallel.samplesTimeBase, 0.0);
+        // the pictures (number, timestamp, key) and the samples (number, timestamp, offset, length)
+        Assert.assertEquals(single.videoPictureInfo.decompress().toString(), parallel.videoPictureInfo.decompress()
+                .toString());
+        Assert.assertEquals(single.audioSamplesInfo.decompress().toString(), parallel.audioSamplesInfo.decompress()
+                .toString());
+    }
 }
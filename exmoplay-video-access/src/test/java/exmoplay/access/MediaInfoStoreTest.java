@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.access;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import exmoplay.access.MediaInfo.AudioSamplesInfo;
+import exmoplay.access.MediaInfo.VideoPictureInfo;
+
+public class MediaInfoStoreTest {
+
+    @Test
+    public void testStoreAndLoad() throws Exception {
+        File video = createFakeVideo(100000);
+        MediaInfoStore store = new MediaInfoStore(createTempDirectory());
+        MediaInfo mediaInfo = createMediaInfo();
+
+        Assert.assertNull(store.load(video));
+        store.store(video, mediaInfo);
+        MediaInfo loaded = store.load(video);
+
+        Assert.assertNotNull(loaded);
+        Assert.assertEquals(mediaInfo.keyFrameTimestamps, loaded.keyFrameTimestamps);
+        Assert.assertEquals(mediaInfo.videoPacketTimeBase, loaded.videoPacketTimeBase, 0.0);
+        Assert.assertEquals(mediaInfo.audioPacketTimeBase, loaded.audioPacketTimeBase, 0.0);
+        Assert.assertEquals(mediaInfo.pictureTimeBase, loaded.pictureTimeBase, 0.0);
+        Assert.assertEquals(mediaInfo.samplesTimeBase, loaded.samplesTimeBase, 0.0);
+        Assert.assertEquals(mediaInfo.audioFrameSize, loaded.audioFrameSize);
+        Assert.assertEquals(mediaInfo.videoFrameRate, loaded.videoFrameRate, 0.0);
+        Assert.assertEquals(mediaInfo.numberOfVideoFrames, loaded.numberOfVideoFrames);
+        Assert.assertEquals(mediaInfo.videoPictureInfo.decompress().toString(), loaded.videoPictureInfo.decompress()
+                .toString());
+        Assert.assertEquals(mediaInfo.audioSamplesInfo.decompress().toString(), loaded.audioSamplesInfo.decompress()
+                .toString());
+    }
+
+    @Test
+    public void testChangedVideoIsNotLoaded() throws Exception {
+        File video = createFakeVideo(100000);
+        MediaInfoStore store = new MediaInfoStore(createTempDirectory());
+        store.store(video, createMediaInfo());
+
+        // same size and modification time, but another beginning
+        long lastModified = video.lastModified();
+        RandomAccessFile raf = new RandomAccessFile(video, "rw");
+        raf.write(new byte[] { 1, 2, 3 });
+        raf.close();
+        video.setLastModified(lastModified);
+        Assert.assertNull(store.load(video));
+
+        // stored again
+        store.store(video, createMediaInfo());
+        Assert.assertNotNull(store.load(video));
+
+        // other size
+        raf = new RandomAccessFile(video, "rw");
+        raf.setLength(200000);
+        raf.close();
+        video.setLastModified(lastModified);
+        Assert.assertNull(store.load(video));
+    }
+
+    @Test
+    public void testOtherVersionIsNotLoaded() throws Exception {
+        File video = createFakeVideo(1000);
+        File directory = createTempDirectory();
+        MediaInfoStore store = new MediaInfoStore(directory);
+        store.store(video, createMediaInfo());
+
+        // overwrite the version (after the magic number)
+        File entry = directory.listFiles()[0];
+        RandomAccessFile raf = new RandomAccessFile(entry, "rw");
+        raf.seek(4);
+        raf.writeInt(MediaInfoStore.FORMAT_VERSION + 1);
+        raf.close();
+        Assert.assertNull(store.load(video));
+    }
+
+    @Test
+    public void testCorruptEntryIsDeleted() throws Exception {
+        File video = createFakeVideo(1000);
+        File directory = createTempDirectory();
+        MediaInfoStore store = new MediaInfoStore(directory);
+        store.store(video, createMediaInfo());
+        File entry = directory.listFiles()[0];
+
+        // a huge length of the key frames (after magic, version, path, size, modification time and head hash)
+        RandomAccessFile raf = new RandomAccessFile(entry, "rw");
+        raf.seek(8);
+        int pathLength = raf.readUnsignedShort();
+        raf.seek(8 + 2 + pathLength + 8 + 8);
+        int hashLength = raf.readInt();
+        raf.seek(8 + 2 + pathLength + 8 + 8 + 4 + hashLength);
+        raf.writeInt(Integer.MAX_VALUE);
+        raf.close();
+        Assert.assertNull(store.load(video));
+        Assert.assertFalse(entry.exists());
+
+        // cut off
+        store.store(video, createMediaInfo());
+        raf = new RandomAccessFile(entry, "rw");
+        raf.setLength(raf.length() / 2);
+        raf.close();
+        Assert.assertNull(store.load(video));
+        Assert.assertFalse(entry.exists());
+
+        // stored again
+        store.store(video, createMediaInfo());
+        Assert.assertNotNull(store.load(video));
+    }
+
+    private static MediaInfo createMediaInfo() {
+        List<VideoPictureInfo> pictures = new ArrayList<VideoPictureInfo>();
+        for (int i = 0; i < 250; i++) {
+            pictures.add(new VideoPictureInfo(i, 1000L + i * 40, i % 25 == 0));
+        }
+        List<AudioSamplesInfo> samples = new ArrayList<AudioSamplesInfo>();
+        for (int i = 0; i < 100; i++) {
+            samples.add(new AudioSamplesInfo(i, 1000L + i * 26, i * 4608L, i == 99 ? 1000 : 4608));
+        }
+        List<Long> keyFrameTimestamps = Arrays.asList(0L, 1000000L, 2000000L, 3000000L);
+        return new MediaInfo(keyFrameTimestamps, CompressedFrameDirectory.compressAudio(samples),
+                CompressedFrameDirectory.compressVideo(pictures), 0.001, 1.0 / 44100, 0.001, 1.0 / 44100, 4608, 25.0,
+                250);
+    }
+
+    private static File createFakeVideo(int size) throws IOException {
+        File file = File.createTempFile("video", ".flv");
+        file.deleteOnExit();
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) i;
+        }
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(data);
+        out.close();
+        return file;
+    }
+
+    private static File createTempDirectory() throws IOException {
+        File directory = File.createTempFile("mediainfo", "");
+        directory.delete();
+        directory.mkdir();
+        directory.deleteOnExit();
+        return directory;
+    }
+}
@@ -4,6 +4,7 @@
  */
 package exmoplay.access;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -30,4 +31,97 @@ public class MediaInfoTest {
         Assert.assertEquals(2400000, mi.findRelevantKeyframeTimestamp(2400000));
         Assert.assertEquals(2400000, mi.findRelevantKeyframeTimestamp(3000000));
     }
+
+    @Test
+    public void testGetKeyFrameNumbers() {
+
+        // the third timestamp rounds to the same frame as the second
+        List<Long> timestamps = Arrays.asList(0L, 800000L, 810000L, 1600000L, 10000000L);
+        MediaInfo mi = new MediaInfo(timestamps, null, null, 0.0, 0.0, 0.0, 0.0,
+                0, 25.0, 0);
+
+        Assert.assertArrayEquals(new long[] { 0L, 20L, 40L, 250L }, mi.getKeyFrameNumbers());
+
+        // a stream starting at 1.4s (e.g. MPEG-TS)
+        timestamps = Arrays.asList(1400000L, 2200000L, 3000000L);
+        mi = new MediaInfo(timestamps, null, null, 0.0, 0.0, 0.0, 0.0, 0, 25.0, 0);
+
+        Assert.assertArrayEquals(new long[] { 0L, 20L, 40L }, mi.getKeyFrameNumbers());
+    }
+
+    @Test
+    public void testIncompleteMediaInfo() {
+
+        // 25 fps with a key frame every second, picture timestamps in milliseconds
+        List<Long> keyFrameTimestamps = Arrays.asList(0L, 1000000L, 2000000L, 3000000L);
+        List<Double> frameRates = Arrays.asList(25.0, 25.0, 25.0);
+        List<MediaInfo.VideoPictureInfo> pictures = new ArrayList<MediaInfo.VideoPictureInfo>();
+        for (int i = 0; i < 100; i++) {
+            pictures.add(new MediaInfo.VideoPictureInfo(i, i * 40L, i % 25 == 0));
+        }
+        List<MediaInfo.AudioSamplesInfo> samples = new ArrayList<MediaInfo.AudioSamplesInfo>();
+
+        // the time base is calibrated two seconds after the second key frame, which is not analyzed yet
+        Assert.assertNull(MediaAnalyzer.createMediaInfo(null, keyFrameTimestamps, frameRates, samples,
+                pictures.subList(0, 75), 0.001, 0.001, 0.001, -1, false));
+
+        MediaInfo mi = MediaAnalyzer.createMediaInfo(null, keyFrameTimestamps, frameRates, samples,
+                pictures.subList(0, 80), 0.001, 0.001, 0.001, -1, false);
+        Assert.assertFalse(mi.complete);
+        Assert.assertEquals(80, mi.numberOfVideoFrames);
+        Assert.assertEquals(0.001, mi.pictureTimeBase, 1e-9);
+        Assert.assertEquals(79 * 40L, mi.findVideoPictureInfoByFrameNumber(79).timestamp);
+        Assert.assertNull(mi.findVideoPictureInfoByFrameNumber(80));
+
+        // the frame rate of an earlier media info is kept (the time base is still calibrated)
+        mi = MediaAnalyzer.createMediaInfo(null, keyFrameTimestamps, frameRates, samples, pictures.subList(0, 80),
+                0.001, 0.001, 0.001, -1, 24.0, false);
+        Assert.assertEquals(24.0, mi.videoFrameRate, 0.0);
+        Assert.assertEquals(0.001, mi.pictureTimeBase, 1e-9);
+    }
+
+    @Test
+    public void testVideoPictureLookup() {
+
+        List<MediaInfo.VideoPictureInfo> pictures = new ArrayList<MediaInfo.VideoPictureInfo>();
+        for (int i = 0; i < 60; i++) {
+            pictures.add(new MediaInfo.VideoPictureInfo(i, 1000 + i * 40L, i % 25 == 0));
+        }
+        MediaInfo mi = new MediaInfo(Arrays.asList(0L, 1000000L, 2000000L), null,
+                CompressedFrameDirectory.compressVideo(pictures), 0.0, 0.0, 0.001, 0.0, 0, 25.0, 60);
+
+        Assert.assertEquals(1000L, mi.getVideoPictureTimestamp(0));
+        Assert.assertEquals(1000L + 59 * 40L, mi.getVideoPictureTimestamp(59));
+        Assert.assertEquals(-1L, mi.getVideoPictureTimestamp(60));
+        Assert.assertTrue(mi.isKeyPicture(0));
+        Assert.assertTrue(mi.isKeyPicture(50));
+        Assert.assertFalse(mi.isKeyPicture(49));
+        Assert.assertFalse(mi.isKeyPicture(75));
+        Assert.assertEquals(pictures.get(25).toString(), mi.findVideoPictureInfoByFrameNumber(25).toString());
+        Assert.assertEquals(Arrays.asList(0L, 1000000L, 2000000L), mi.keyFrameTimestamps);
+    }
+
+    @Test
+    public void testAudioSamplesLookup() {
+
+        // the third samples are empty (e.g. a broken packet)
+        List<MediaInfo.AudioSamplesInfo> samples = new ArrayList<MediaInfo.AudioSamplesInfo>();
+        samples.add(new MediaInfo.AudioSamplesInfo(0, 0, 0, 4608));
+        samples.add(new MediaInfo.AudioSamplesInfo(1, 26122, 4608, 4608));
+        samples.add(new MediaInfo.AudioSamplesInfo(2, 52244, 9216, 0));
+        samples.add(new MediaInfo.AudioSamplesInfo(3, 78366, 9216, 4608));
+        MediaInfo mi = new MediaInfo(Arrays.asList(0L), CompressedFrameDirectory.compressAudio(samples), null, 0.0,
+                0.0, 0.0, 1.0 / 44100, 4608, 25.0, 0);
+
+        Assert.assertEquals(-1, mi.findAudioSamplesContainingOffset(-1));
+        Assert.assertEquals(0, mi.findAudioSamplesContainingOffset(0));
+        Assert.assertEquals(0, mi.findAudioSamplesContainingOffset(4607));
+        Assert.assertEquals(1, mi.findAudioSamplesContainingOffset(4608));
+        Assert.assertEquals(3, mi.findAudioSamplesContainingOffset(9216));
+        Assert.assertEquals(3, mi.findAudioSamplesContainingOffset(20000));
+        Assert.assertEquals(26122L, mi.getAudioSamplesTimestamp(1));
+        Assert.assertEquals(4608L, mi.getAudioSamplesOffset(1));
+        Assert.assertEquals(0, mi.getAudioSamplesLength(2));
+        Assert.assertEquals(samples.get(3).toString(), mi.findAudioSamplesInfoContainingOffset(10000).toString());
+    }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.access;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelMediaAnalyzerTest {
+
+    @Test
+    public void testSplitAtKeyFrames() {
+        // 10 GOPs of 25 packets
+        int[] keyFrames = new int[10];
+        for (int i = 0; i < keyFrames.length; i++) {
+            keyFrames[i] = i * 25;
+        }
+        Assert.assertArrayEquals(new int[] { 0 }, ParallelMediaAnalyzer.splitAtKeyFrames(keyFrames, 250, 1));
+        Assert.assertArrayEquals(new int[] { 0, 5 }, ParallelMediaAnalyzer.splitAtKeyFrames(keyFrames, 250, 2));
+        Assert.assertArrayEquals(new int[] { 0, 4, 7 }, ParallelMediaAnalyzer.splitAtKeyFrames(keyFrames, 250, 3));
+        // not more ranges than key frames
+        Assert.assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 },
+                ParallelMediaAnalyzer.splitAtKeyFrames(keyFrames, 250, 16));
+    }
+
+    @Test
+    public void testSplitAtKeyFramesUneven() {
+        // a long GOP cannot be split, ranges are never empty
+        int[] keyFrames = { 0, 10, 20, 200, 210, 220 };
+        Assert.assertArrayEquals(new int[] { 0, 3 }, ParallelMediaAnalyzer.splitAtKeyFrames(keyFrames, 230, 2));
+        Assert.assertArrayEquals(new int[] { 0, 3 }, ParallelMediaAnalyzer.splitAtKeyFrames(keyFrames, 230, 4));
+        Assert.assertArrayEquals(new int[] { 0, 2, 3, 4 }, ParallelMediaAnalyzer.splitAtKeyFrames(keyFrames, 230, 12));
+        // packets before the first key frame belong to the first range
+        Assert.assertArrayEquals(new int[] { 0, 1 }, ParallelMediaAnalyzer.splitAtKeyFrames(new int[] { 5, 105 }, 200,
+                2));
+    }
+}
@@ -4,9 +4,12 @@
  */
 package exmoplay.access;
 
+import java.awt.Dimension;
 import java.awt.Image;
+import java.awt.image.BufferedImage;
 import java.awt.image.Raster;
 import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
@@ -83,6 +86,179 @@ public class XugglerMediaInputStreamTest {
         }
     }
 
+    @Test
+    public void testReadFrameDoesNotAllocateImages() throws Exception {
+        File movieFile = new File("/home/sberner/Desktop/10-07.04.09.flv");
+        XugglerMediaInputStream is = new XugglerMediaInputStream(movieFile);
+        try {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+                    .getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+
+            MediaFrame mf = is.createFrame();
+            is.setPosition(0);
+            // warm up
+            for (int i = 0; i < 20; i++) {
+                is.readFrame(mf);
+                mf.video.getImage();
+            }
+            int frames = 100;
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < frames; i++) {
+                is.readFrame(mf);
+                mf.video.getImage(); // including the conversion
+            }
+            long bytesPerFrame = (threads.getThreadAllocatedBytes(threadId) - allocatedBefore) / frames;
+
+            // only small objects (like packet wrappers) are allowed, but no image
+            long imageBytes = mf.video.bufferedImage.getWidth() * mf.video.bufferedImage.getHeight() * 3;
+            System.out.println("allocated " + bytesPerFrame + " bytes per frame (image has " + imageBytes
+                    + " bytes)");
+            Assert.assertTrue("allocated " + bytesPerFrame + " bytes per frame", bytesPerFrame < imageBytes / 10);
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void testReadKeyFrame() throws Exception {
+        File movieFile = new File("/home/sberner/Desktop/10-07.04.09.flv");
+        XugglerMediaInputStream is = new XugglerMediaInputStream(movieFile);
+        try {
+            MediaInfo mediaInfo = MediaAnalyzer.analyze(movieFile);
+            long[] keyFrames = mediaInfo.getKeyFrameNumbers();
+            double frameRate = is.getVideoFormat().getFrameRate();
+            MediaFrame mf = is.createFrame();
+
+            // between the second and the third key frame
+            long target = (keyFrames[1] + keyFrames[2]) / 2;
+            long keyFrame = is.readKeyFrame((long) (target * 1000 / frameRate), mf);
+            Assert.assertEquals(keyFrames[1], keyFrame);
+            Assert.assertFalse(mf.isEndOfMedia());
+            Assert.assertNotNull(mf.video.getImage());
+
+            // exact reading goes on as before
+            MediaFrame exact = is.createFrame();
+            is.setPosition((long) (keyFrame * 1000 / frameRate));
+            is.readFrame(exact);
+            Assert.assertEquals(mf.timestamp, exact.timestamp, 1.0);
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void testFlushedDecodersMatchReopened() throws Exception {
+        File movieFile = new File("/home/sberner/Desktop/10-07.04.09.flv");
+        XugglerMediaInputStream flushing = new XugglerMediaInputStream(movieFile);
+        XugglerMediaInputStream reopening = new XugglerMediaInputStream(movieFile);
+        try {
+            flushing.setFlushDecoders(true);
+            reopening.setFlushDecoders(false);
+            long[] keyFrames = MediaAnalyzer.analyze(movieFile).getKeyFrameNumbers();
+            double frameRate = flushing.getVideoFormat().getFrameRate();
+            MediaFrame flushed = flushing.createFrame();
+            MediaFrame reopened = reopening.createFrame();
+
+            // into the middle of GOPs, forward and backward
+            int[] gops = { 3, 1, 6, 5, 2 };
+            for (int gop : gops) {
+                long target = (keyFrames[gop] + keyFrames[gop + 1]) / 2;
+                long position = (long) (target * 1000 / frameRate);
+                flushing.seekTo(position);
+                reopening.seekTo(position);
+                // a few frames each, which depend on the ones decoded before
+                for (int i = 0; i < 5; i++) {
+                    flushing.readFrame(flushed);
+                    reopening.readFrame(reopened);
+                    String key = "frame " + i + " after seeking to " + position + "ms";
+                    Assert.assertEquals(key, reopened.getTimestamp(), flushed.getTimestamp(), 0.0);
+                    assertImageEquals(key, reopened, flushed);
+                }
+            }
+            Assert.assertEquals(gops.length, flushing.getSeeks());
+            Assert.assertEquals(gops.length, reopening.getSeeks());
+        } finally {
+            flushing.close();
+            reopening.close();
+        }
+    }
+
+    @Test
+    public void testSeekPlanning() throws Exception {
+        File movieFile = new File("/home/sberner/Desktop/10-07.04.09.flv");
+        XugglerMediaInputStream is = new XugglerMediaInputStream(movieFile);
+        try {
+            long[] keyFrames = MediaAnalyzer.analyze(movieFile).getKeyFrameNumbers();
+            double frameRate = is.getVideoFormat().getFrameRate();
+            MediaFrame mf = is.createFrame();
+
+            long frame = keyFrames[2];
+            is.setPosition((long) (frame * 1000 / frameRate));
+            is.readFrame(mf);
+            long seeks = is.getSeeks();
+            long discarded = is.getDiscardedVideoFrames();
+
+            // sequential positions (like reading block after block) only go on reading
+            for (int i = 0; i < 5; i++) {
+                frame++;
+                long avoided = is.getSeeksAvoided();
+                is.setPosition((long) (frame * 1000 / frameRate));
+                is.readFrame(mf);
+                Assert.assertEquals(avoided + 1, is.getSeeksAvoided());
+            }
+            Assert.assertEquals(seeks, is.getSeeks());
+            Assert.assertEquals(discarded, is.getDiscardedVideoFrames());
+
+            // a few frames ahead: decoded forward, the frames in between are discarded
+            frame += 4;
+            is.setPosition((long) (frame * 1000 / frameRate));
+            is.readFrame(mf);
+            Assert.assertEquals(seeks, is.getSeeks());
+            Assert.assertEquals(discarded + 3, is.getDiscardedVideoFrames());
+            Assert.assertEquals(frame * 1000 / frameRate, mf.getTimestamp(), 1000 / frameRate);
+
+            // several GOPs ahead: seeks
+            frame = keyFrames[6] + 1;
+            is.setPosition((long) (frame * 1000 / frameRate));
+            is.readFrame(mf);
+            Assert.assertEquals(seeks + 1, is.getSeeks());
+            Assert.assertEquals(frame * 1000 / frameRate, mf.getTimestamp(), 1000 / frameRate);
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void testMaxOutputSize() throws Exception {
+        File movieFile = new File("/home/sberner/Desktop/10-07.04.09.flv");
+        XugglerMediaInputStream is = new XugglerMediaInputStream(movieFile);
+        try {
+            Dimension videoSize = is.getVideoFormat().getSize();
+            MediaFrame fullSize = is.createFrame();
+
+            // scaled down to cover half the width (and keeping the aspect ratio)
+            is.setMaxOutputSize(new Dimension(videoSize.width / 2, 1));
+            MediaFrame halfSize = is.createFrame();
+            Assert.assertEquals(videoSize.width / 2, halfSize.video.getWidth(), 1);
+            Assert.assertEquals(videoSize.height / 2, halfSize.video.getHeight(), 1);
+            Assert.assertTrue(halfSize.getSizeInBytes() < fullSize.getSizeInBytes());
+            // frames created before keep their size
+            Assert.assertEquals(videoSize.width, fullSize.video.getWidth());
+
+            is.setPosition(0);
+            is.readFrame(halfSize);
+            Image image = halfSize.video.getImage();
+            Assert.assertEquals(halfSize.video.getWidth(), image.getWidth(null));
+
+            // never scaled up
+            is.setMaxOutputSize(new Dimension(videoSize.width * 2, videoSize.height * 2));
+            Assert.assertEquals(videoSize, is.getOutputSize());
+        } finally {
+            is.close();
+        }
+    }
+
     @Test
     public void testSetPosition() throws Exception {
         int numOfPositions = 50;
@@ -213,8 +389,8 @@ public class XugglerMediaInputStreamTest {
     }
 
     private void assertImageEquals(String key, MediaFrame expected, MediaFrame actual) {
-        Raster expectedData = expected.video.bufferedImage.getData();
-        Raster actualData = actual.video.bufferedImage.getData();
+        Raster expectedData = ((BufferedImage) expected.video.getImage()).getData();
+        Raster actualData = ((BufferedImage) actual.video.getImage()).getData();
 
         Assert.assertEquals(expectedData.getMinX(), actualData.getMinX());
         Assert.assertEquals(expectedData.getMinY(), actualData.getMinY());
@@ -240,7 +416,7 @@ public class XugglerMediaInputStreamTest {
 
                 // debugging possibility
                 if (INTERACTIVE && (redDifference > 1 || greenDifference > 1 || blueDifference > 1)) {
-                    ImageViewer.displayViewer(expected.video.bufferedImage, actual.video.bufferedImage);
+                    ImageViewer.displayViewer(expected.video.getImage(), actual.video.getImage());
                     //// break
                     //i = maxy;
                     //j = maxx;
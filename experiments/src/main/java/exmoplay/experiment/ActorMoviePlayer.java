@@ -28,7 +28,6 @@ import exmoplay.engine.messages.MediaError;
 import exmoplay.engine.messages.MediaInfoRequest;
 import exmoplay.engine.messages.MediaInfoResponse;
 import exmoplay.engine.messages.PrefetchRequest;
-import exmoplay.engine.messages.RecyclingBag;
 import exmoplay.experiment.util.SimplePanelFrame;
 
 public class ActorMoviePlayer {
@@ -147,7 +146,7 @@ public class ActorMoviePlayer {
 
             // recycle
             for (CachedFrame cf : requestedFrames) {
-                frameCache.send(new RecyclingBag(cf));
+                cf.recycle();
             }
         }
 
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.experiment;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import exmoplay.engine.actorframework.Actor;
+import exmoplay.engine.actorframework.Actor.Priority;
+import exmoplay.engine.actorframework.Scheduler;
+
+/**
+ * Compares the dedicated (platform and virtual) thread schedulers with the pooled scheduler: starts N simulated players
+ * (each with the same number of actors and idle intervals as a real MediaPlayer) and sends messages along a chain of
+ * their actors (like controller -> cache -> fetcher -> cache -> controller). Prints the number of threads and the
+ * message latency.
+ *
+ * Usage: ActorSchedulerBenchmark [number of players] [seconds per run]
+ */
+public class ActorSchedulerBenchmark {
+
+    private static final int ACTORS_PER_PLAYER = 6;
+    private static final int HOPS_PER_PING = 4;
+    private static final long PING_INTERVAL_MILLIS = 2;
+
+    private static final AtomicLong latencySumNanos = new AtomicLong();
+    private static final AtomicLong latencyMaxNanos = new AtomicLong();
+    private static final AtomicLong messageCount = new AtomicLong();
+
+    private static class Ping {
+        final long sentNanos;
+        final int hopsLeft;
+
+        Ping(long sentNanos, int hopsLeft) {
+            this.sentNanos = sentNanos;
+            this.hopsLeft = hopsLeft;
+        }
+    }
+
+    private static class ChainActor extends Actor {
+        private Actor next;
+
+        ChainActor(int idleNanos, Scheduler scheduler) {
+            super(null, idleNanos, Priority.NORM, scheduler);
+        }
+
+        @Override
+        protected void act(Object message) {
+            Ping ping = (Ping) message;
+            long latency = System.nanoTime() - ping.sentNanos;
+            latencySumNanos.addAndGet(latency);
+            messageCount.incrementAndGet();
+            long max;
+            while (latency > (max = latencyMaxNanos.get()) && !latencyMaxNanos.compareAndSet(max, latency)) {
+                // retry
+            }
+            if (ping.hopsLeft > 0) {
+                next.send(new Ping(System.nanoTime(), ping.hopsLeft - 1));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int nPlayers = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int nThreads = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("players: " + nPlayers + "; actors per player: " + ACTORS_PER_PLAYER + "; cores: "
+                + nThreads);
+        run("dedicated threads", Scheduler.dedicatedThreads(), nPlayers, seconds);
+        run("virtual threads", Scheduler.virtualThreads(), nPlayers, seconds);
+        run("pooled (" + nThreads + " threads)", Scheduler.pooled(nThreads), nPlayers, seconds);
+    }
+
+    private static void run(String name, Scheduler scheduler, int nPlayers, int seconds) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int threadsBefore = threads.getThreadCount();
+
+        // same idle intervals as error handler, controller, video renderer, frame cache, frame fetcher, audio renderer
+        int[] idleNanos = { -1, 10000000, -1, -1, -1, 50000000 };
+        List<ChainActor> entryPoints = new ArrayList<ChainActor>();
+        List<ChainActor> all = new ArrayList<ChainActor>();
+        for (int p = 0; p < nPlayers; p++) {
+            ChainActor[] player = new ChainActor[ACTORS_PER_PLAYER];
+            for (int i = 0; i < player.length; i++) {
+                player[i] = new ChainActor(idleNanos[i], scheduler);
+            }
+            for (int i = 0; i < player.length; i++) {
+                player[i].next = player[(i + 1) % player.length];
+                player[i].start();
+                all.add(player[i]);
+            }
+            entryPoints.add(player[1]);
+        }
+
+        latencySumNanos.set(0);
+        latencyMaxNanos.set(0);
+        messageCount.set(0);
+        long end = System.currentTimeMillis() + seconds * 1000L;
+        while (System.currentTimeMillis() < end) {
+            for (ChainActor a : entryPoints) {
+                a.send(new Ping(System.nanoTime(), HOPS_PER_PING));
+            }
+            Thread.sleep(PING_INTERVAL_MILLIS);
+        }
+        int threadsDuring = threads.getThreadCount();
+
+        for (ChainActor a : all) {
+            a.stopAndWait();
+        }
+        scheduler.shutdown();
+
+        long count = messageCount.get();
+        System.out.println(name + ": threads used by actors: " + (threadsDuring - threadsBefore) + "; messages: "
+                + count + "; average latency: " + (count == 0 ? 0 : latencySumNanos.get() / count / 1000)
+                + "us; max latency: " + latencyMaxNanos.get() / 1000 + "us");
+    }
+}
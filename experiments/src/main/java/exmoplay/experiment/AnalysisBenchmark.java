@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.experiment;
+
+import java.io.File;
+
+import exmoplay.access.MediaAnalyzer;
+import exmoplay.access.MediaInfo;
+
+/**
+ * Measures how fast the media analyzer goes through videos (without the media info store, so every video is really
+ * analyzed), once in a single pass and once on all processors. Prints the throughput in frames and megabytes per
+ * second.
+ *
+ * Usage: AnalysisBenchmark video...
+ */
+public class AnalysisBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: AnalysisBenchmark video...");
+            return;
+        }
+        int nThreads = Runtime.getRuntime().availableProcessors();
+        run(args, 1);
+        if (nThreads > 1)
+            run(args, nThreads);
+    }
+
+    private static void run(String[] args, int nThreads) throws Exception {
+        System.out.println(nThreads + " thread(s):");
+        long totalFrames = 0;
+        long totalBytes = 0;
+        double totalSeconds = 0;
+        for (String arg : args) {
+            File file = new File(arg);
+            long start = System.nanoTime();
+            MediaInfo mediaInfo = MediaAnalyzer.analyze(file, null, nThreads);
+            double seconds = (System.nanoTime() - start) / 1000000000.0;
+            print(file.getName(), mediaInfo.numberOfVideoFrames, file.length(), seconds);
+            totalFrames += mediaInfo.numberOfVideoFrames;
+            totalBytes += file.length();
+            totalSeconds += seconds;
+        }
+        if (args.length > 1)
+            print("total", totalFrames, totalBytes, totalSeconds);
+    }
+
+    private static void print(String name, long frames, long bytes, double seconds) {
+        System.out.println(String.format("  %s: %d frames in %.2fs: %.1f frames/s, %.1f MB/s", name, frames, seconds,
+                frames / seconds, bytes / seconds / (1024 * 1024)));
+    }
+}
@@ -16,6 +16,7 @@ import exmoplay.engine.AudioRenderer;
 import exmoplay.engine.FrameCache;
 import exmoplay.engine.actorframework.Actor;
 import exmoplay.engine.actorframework.Actor.Priority;
+import exmoplay.engine.messages.CacheBlock;
 import exmoplay.engine.messages.CachedFrame;
 import exmoplay.engine.messages.ControlCommand;
 import exmoplay.engine.messages.ControlCommand.Command;
@@ -68,7 +69,7 @@ public class AudioPulseAudioCrasher {
 
         CachedFrame[] cachedFrames = new CachedFrame[50];
         for (int i = 0; i < cachedFrames.length; i++) {
-            cachedFrames[i] = new CachedFrame(0, frameCacheStub);
+            cachedFrames[i] = new CachedFrame(frameCacheStub);
             AudioBuffer audioBuffer = new AudioBuffer();
             f.set(audioBuffer, new byte[4096]);
             byte[] data = audioBuffer.getAudioData();
@@ -81,6 +82,9 @@ public class AudioPulseAudioCrasher {
             cachedFrames[i].frame = new MediaFrame(audioBuffer, null);
         }
 
+        // the renderer recycles each frame once
+        CacheBlock block = new CacheBlock(0, cachedFrames);
+        block.usageCount.set(cachedFrames.length);
         for (int i = 0; i < cachedFrames.length; i++) {
             renderer.send(cachedFrames[i]);
         }
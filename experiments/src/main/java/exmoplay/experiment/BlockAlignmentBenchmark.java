@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.experiment;
+
+import java.io.File;
+import java.util.Random;
+
+import exmoplay.access.MediaAnalyzer;
+import exmoplay.access.MediaFrame;
+import exmoplay.access.MediaInfo;
+import exmoplay.access.XugglerMediaInputStream;
+import exmoplay.engine.BlockLayout;
+import exmoplay.engine.FrameCache;
+
+/**
+ * Counts how many frames are really decoded per delivered frame when fetching blocks like the frame fetcher does
+ * (setting the position of the media input stream to the block and reading its frames), once with fixed blocks and
+ * once with blocks aligned to the key frames. Decoded frames are the delivered ones plus the ones the stream decoded
+ * only to discard them on its way to the block.
+ *
+ * Usage: BlockAlignmentBenchmark video [seconds played] [random seeks]
+ */
+public class BlockAlignmentBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: BlockAlignmentBenchmark video [seconds played] [random seeks]");
+            return;
+        }
+        File file = new File(args[0]);
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        int nSeeks = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        MediaInfo mediaInfo = MediaAnalyzer.analyze(file);
+        long nFrames = Math.min(mediaInfo.numberOfVideoFrames, (long) (seconds * mediaInfo.videoFrameRate));
+
+        BlockLayout fixed = BlockLayout.fixed(FrameCache.BLOCK_LENGTH);
+        BlockLayout aligned = BlockLayout.keyFrameAligned(mediaInfo.getKeyFrameNumbers(), FrameCache.BLOCK_LENGTH);
+        System.out.println(file.getName() + ":");
+        System.out.println("  playback (" + nFrames + " frames): fixed "
+                + playback(file, mediaInfo, fixed, nFrames) + "; aligned "
+                + playback(file, mediaInfo, aligned, nFrames));
+        System.out.println("  random seeks (" + nSeeks + "): fixed " + seeks(file, mediaInfo, fixed, nSeeks)
+                + "; aligned " + seeks(file, mediaInfo, aligned, nSeeks));
+    }
+
+    /**
+     * Fetches all blocks from the start (the stream decodes forward from one block to the next where that is cheaper).
+     */
+    private static String playback(File file, MediaInfo mediaInfo, BlockLayout layout, long nFrames)
+            throws Exception {
+        XugglerMediaInputStream is = new XugglerMediaInputStream(file, mediaInfo);
+        MediaFrame frame = is.createFrame();
+        try {
+            long delivered = 0;
+            for (long base = 0; base < nFrames; base += layout.getLength(base)) {
+                delivered += fetch(is, frame, base, layout.getLength(base), false);
+            }
+            return format(is, delivered);
+        } finally {
+            frame.delete();
+            is.close();
+        }
+    }
+
+    /**
+     * Fetches the blocks of random positions, each after a seek (like jumping around in the video).
+     */
+    private static String seeks(File file, MediaInfo mediaInfo, BlockLayout layout, int nSeeks) throws Exception {
+        XugglerMediaInputStream is = new XugglerMediaInputStream(file, mediaInfo);
+        MediaFrame frame = is.createFrame();
+        try {
+            // same positions for both layouts
+            Random random = new Random(7);
+            long delivered = 0;
+            for (int i = 0; i < nSeeks; i++) {
+                long base = layout.getBaseSeqNum((long) (random.nextDouble() * mediaInfo.numberOfVideoFrames * 0.95));
+                delivered += fetch(is, frame, base, layout.getLength(base), true);
+            }
+            return format(is, delivered);
+        } finally {
+            frame.delete();
+            is.close();
+        }
+    }
+
+    /**
+     * @return the number of frames delivered
+     */
+    private static int fetch(XugglerMediaInputStream is, MediaFrame frame, long base, int length, boolean seek) {
+        long position = (long) (1000.0 * base / is.getVideoFormat().getFrameRate());
+        if (seek)
+            is.seekTo(position);
+        else
+            is.setPosition(position);
+        int delivered = 0;
+        for (int i = 0; i < length; i++) {
+            is.readFrame(frame);
+            if (frame.isEndOfMedia())
+                break;
+            delivered++;
+        }
+        return delivered;
+    }
+
+    private static String format(XugglerMediaInputStream is, long delivered) {
+        long decoded = delivered + is.getDiscardedVideoFrames();
+        return String.format("%.2f decoded frames per delivered frame (%d seeks)", (double) decoded / delivered,
+                is.getSeeks());
+    }
+}
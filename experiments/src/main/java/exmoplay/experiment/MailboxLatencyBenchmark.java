@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.experiment;
+
+import java.util.concurrent.CountDownLatch;
+
+import exmoplay.engine.actorframework.Actor;
+import exmoplay.engine.actorframework.Actor.Priority;
+
+/**
+ * Measures how long a control message takes to be dispatched while the data lane of the mailbox is saturated (like a
+ * stop or seek arriving behind hundreds of frames or recycling bags), once with a single FIFO and once with the control
+ * type prioritized.
+ *
+ * Usage: MailboxLatencyBenchmark [data messages per round] [micros per data message] [rounds]
+ */
+public class MailboxLatencyBenchmark {
+
+    private static class Data {
+    }
+
+    private static class Control {
+        final long sentNanos;
+        final CountDownLatch done = new CountDownLatch(1);
+        long dispatchNanos;
+
+        Control(long sentNanos) {
+            this.sentNanos = sentNanos;
+        }
+    }
+
+    private static class BusyActor extends Actor {
+        private final long nanosPerData;
+
+        BusyActor(long nanosPerData) {
+            super(null, -1, Priority.NORM);
+            this.nanosPerData = nanosPerData;
+        }
+
+        @Override
+        protected void act(Object message) {
+            if (message instanceof Control) {
+                Control c = (Control) message;
+                c.dispatchNanos = System.nanoTime() - c.sentNanos;
+                c.done.countDown();
+            } else {
+                // simulate the work of processing a data message
+                long end = System.nanoTime() + nanosPerData;
+                while (System.nanoTime() < end) {
+                    // spin
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int nData = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int microsPerData = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        System.out.println("data messages queued ahead: " + nData + "; micros per data message: " + microsPerData);
+        run("single FIFO", false, nData, microsPerData, rounds);
+        run("control lane", true, nData, microsPerData, rounds);
+    }
+
+    private static void run(String name, boolean prioritized, int nData, int microsPerData, int rounds)
+            throws Exception {
+        BusyActor actor = new BusyActor(microsPerData * 1000L);
+        if (prioritized)
+            actor.prioritize(Control.class);
+        actor.start();
+
+        long sum = 0;
+        long max = 0;
+        for (int r = 0; r < rounds; r++) {
+            for (int i = 0; i < nData; i++) {
+                actor.send(new Data());
+            }
+            Control c = new Control(System.nanoTime());
+            actor.send(c);
+            c.done.await();
+            sum += c.dispatchNanos;
+            max = Math.max(max, c.dispatchNanos);
+            // let the data lane drain before the next round
+            while (actor.getQueueDepth() > 0) {
+                Thread.sleep(1);
+            }
+        }
+        actor.stopAndWait();
+
+        System.out.println(name + ": average dispatch latency: " + sum / rounds / 1000 + "us; max: " + max / 1000
+                + "us");
+    }
+}
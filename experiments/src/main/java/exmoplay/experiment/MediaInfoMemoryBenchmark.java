@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.experiment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import exmoplay.access.CompressedFrameDirectory;
+import exmoplay.access.MediaInfo;
+import exmoplay.access.MediaInfo.AudioSamplesInfo;
+import exmoplay.access.MediaInfo.VideoPictureInfo;
+
+/**
+ * Measures the heap used by the lookups of the media info per hour of video (synthetic, with a key frame every second
+ * and MP2 audio at 44.1 kHz), once with one object per frame (a list of pictures and a tree map of samples, like the
+ * media info used to do) and once with the primitive arrays of the media info. Also prints the time per lookup.
+ *
+ * Usage: MediaInfoMemoryBenchmark [frame rate...]
+ */
+public class MediaInfoMemoryBenchmark {
+
+    private static final int SAMPLE_RATE = 44100;
+    private static final int SAMPLES_PER_FRAME = 1152;
+    private static final int BYTES_PER_SAMPLE = 4;
+    private static final int LOOKUPS = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        double[] frameRates = { 25.0, 30.0, 60.0 };
+        if (args.length > 0) {
+            frameRates = new double[args.length];
+            for (int i = 0; i < args.length; i++) {
+                frameRates[i] = Double.parseDouble(args[i]);
+            }
+        }
+        for (double frameRate : frameRates) {
+            run(frameRate);
+        }
+    }
+
+    private static void run(double frameRate) {
+        MediaInfo mediaInfo = createOneHour(frameRate);
+        int nFrames = (int) mediaInfo.numberOfVideoFrames;
+        long maxOffset = (long) SAMPLE_RATE * 3600 * BYTES_PER_SAMPLE;
+        System.out.println(String.format("%.0f fps (%d frames per hour):", frameRate, nFrames));
+
+        long before = usedMemory();
+        List<VideoPictureInfo> pictures = mediaInfo.videoPictureInfo.decompress();
+        SortedMap<Long, AudioSamplesInfo> samplesByOffset = new TreeMap<Long, AudioSamplesInfo>();
+        for (AudioSamplesInfo info : mediaInfo.audioSamplesInfo.decompress()) {
+            samplesByOffset.put(info.samplesOffset, info);
+        }
+        long objectBytes = usedMemory() - before;
+
+        long start = System.nanoTime();
+        long sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            sum += pictures.get(i % nFrames).timestamp;
+            long offset = (long) i * 7919 % maxOffset;
+            sum += samplesByOffset.get(samplesByOffset.headMap(offset + 1).lastKey()).timestamp;
+        }
+        double objectNanos = (System.nanoTime() - start) / (double) LOOKUPS;
+        print("objects", objectBytes, objectNanos, sum);
+        pictures = null;
+        samplesByOffset = null;
+
+        // the media info decompresses the directories into its arrays when it is created, so measure a new one
+        List<Long> keyFrameTimestamps = new ArrayList<Long>(mediaInfo.keyFrameTimestamps);
+        CompressedFrameDirectory.Audio audio = mediaInfo.audioSamplesInfo;
+        CompressedFrameDirectory.Video video = mediaInfo.videoPictureInfo;
+        mediaInfo = null;
+        before = usedMemory();
+        mediaInfo = createMediaInfo(keyFrameTimestamps, audio, video, frameRate, nFrames);
+        long arrayBytes = usedMemory() - before;
+
+        start = System.nanoTime();
+        sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            sum += mediaInfo.getVideoPictureTimestamp(i % nFrames);
+            long offset = (long) i * 7919 % maxOffset;
+            sum += mediaInfo.getAudioSamplesTimestamp(mediaInfo.findAudioSamplesContainingOffset(offset));
+        }
+        double arrayNanos = (System.nanoTime() - start) / (double) LOOKUPS;
+        print("arrays", arrayBytes, arrayNanos, sum);
+    }
+
+    private static MediaInfo createOneHour(double frameRate) {
+        int nFrames = (int) Math.round(3600 * frameRate);
+        int keyInterval = (int) Math.round(frameRate);
+        List<VideoPictureInfo> pictures = new ArrayList<VideoPictureInfo>(nFrames);
+        List<Long> keyFrameTimestamps = new ArrayList<Long>();
+        for (int i = 0; i < nFrames; i++) {
+            long timestamp = Math.round(i * 1000000.0 / frameRate);
+            boolean key = i % keyInterval == 0;
+            pictures.add(new VideoPictureInfo(i, timestamp, key));
+            if (key)
+                keyFrameTimestamps.add(timestamp);
+        }
+        int nSamples = SAMPLE_RATE * 3600 / SAMPLES_PER_FRAME;
+        List<AudioSamplesInfo> samples = new ArrayList<AudioSamplesInfo>(nSamples);
+        for (int i = 0; i < nSamples; i++) {
+            long timestamp = Math.round((double) i * SAMPLES_PER_FRAME * 1000000.0 / SAMPLE_RATE);
+            samples.add(new AudioSamplesInfo(i, timestamp, (long) i * SAMPLES_PER_FRAME * BYTES_PER_SAMPLE,
+                    SAMPLES_PER_FRAME * BYTES_PER_SAMPLE));
+        }
+        return createMediaInfo(keyFrameTimestamps, CompressedFrameDirectory.compressAudio(samples),
+                CompressedFrameDirectory.compressVideo(pictures), frameRate, nFrames);
+    }
+
+    private static MediaInfo createMediaInfo(List<Long> keyFrameTimestamps, CompressedFrameDirectory.Audio audio,
+            CompressedFrameDirectory.Video video, double frameRate, int nFrames) {
+        return new MediaInfo(keyFrameTimestamps, audio, video, 1.0 / 90000, 1.0 / SAMPLE_RATE, 0.000001,
+                1.0 / SAMPLE_RATE, SAMPLES_PER_FRAME * BYTES_PER_SAMPLE, frameRate, nFrames);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void print(String name, long bytes, double nanosPerLookup, long checksum) {
+        System.out.println(String.format("  %s: %.1f MB per hour, %.0f ns per lookup (checksum %d)", name,
+                bytes / (1024.0 * 1024.0), nanosPerLookup, checksum));
+    }
+}
@@ -134,7 +134,7 @@ public class MediaInputStreamTest {
             int audioPos = 0;
             /*for (int j = 0; j < 100; j++) {
                 // TODO insert into media buffer
-                CachedFrame cf = new CachedFrame(0, null);
+                CachedFrame cf = new CachedFrame(null);
                 cf.frame = mediaFrames[j];
                 audioRenderer.send(cf);
             }*/
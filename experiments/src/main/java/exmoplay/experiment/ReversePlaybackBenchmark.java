@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.experiment;
+
+import java.io.File;
+
+import exmoplay.access.MediaAnalyzer;
+import exmoplay.access.MediaInfo;
+import exmoplay.engine.BlockLayout;
+import exmoplay.engine.FrameCache;
+import exmoplay.engine.FrameFetcher;
+import exmoplay.engine.actorframework.ObjectReceiver;
+import exmoplay.engine.actorframework.Scheduler;
+import exmoplay.engine.messages.CacheInfo;
+import exmoplay.engine.messages.CacheInfoRequest;
+import exmoplay.engine.messages.CachedFrame;
+import exmoplay.engine.messages.FrameRequest;
+
+/**
+ * Plays a video backwards through the frame cache as fast as possible (requesting frames in batches like the controller
+ * does), once fetching each block on its own and once fetching the GOP before the block along with it. Prints the
+ * sustained frame rate and whether it is enough for playing backwards at 1x and 2x. Meant for long GOP videos (e.g.
+ * H.264 with a key frame every 5 or 10 seconds).
+ *
+ * Usage: ReversePlaybackBenchmark video [seconds to play backwards]
+ */
+public class ReversePlaybackBenchmark {
+
+    private static final int BATCH_SIZE = 5;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ReversePlaybackBenchmark video [seconds to play backwards]");
+            return;
+        }
+        File file = new File(args[0]);
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        MediaInfo mediaInfo = MediaAnalyzer.analyze(file);
+        long nFrames = Math.min(mediaInfo.numberOfVideoFrames, (long) (seconds * mediaInfo.videoFrameRate));
+
+        run("each block on its own", file, mediaInfo, nFrames, false);
+        run("GOP once", file, mediaInfo, nFrames, true);
+    }
+
+    private static void run(String name, File file, MediaInfo mediaInfo, long nFrames, boolean backward)
+            throws Exception {
+        FrameFetcher fetcher = new FrameFetcher(null, file, mediaInfo);
+        BlockLayout layout = BlockLayout.keyFrameAligned(mediaInfo.getKeyFrameNumbers(), FrameCache.BLOCK_LENGTH);
+        FrameCache cache = new FrameCache(null, new FrameFetcher[] { fetcher }, layout,
+                FrameCache.DEFAULT_CACHE_MAX_BYTES, Scheduler.getDefault());
+        fetcher.start();
+        cache.start();
+
+        long start = System.nanoTime();
+        long seqNum = nFrames;
+        ObjectReceiver pending = request(cache, seqNum, backward);
+        seqNum -= BATCH_SIZE;
+        while (pending != null) {
+            // request the next batch before waiting for the current one (like prefetching)
+            ObjectReceiver next = seqNum - BATCH_SIZE >= 0 ? request(cache, seqNum, backward) : null;
+            seqNum -= BATCH_SIZE;
+            for (CachedFrame frame : pending.waitForAllMessages(CachedFrame.class)) {
+                frame.recycle();
+            }
+            pending = next;
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1000000000.0;
+        ObjectReceiver infoReceiver = new ObjectReceiver();
+        cache.send(new CacheInfoRequest(infoReceiver));
+        CacheInfo info = (CacheInfo) infoReceiver.waitForMessage();
+
+        cache.stopAndWait();
+        fetcher.stopAndWait();
+
+        long played = nFrames / BATCH_SIZE * BATCH_SIZE;
+        double fps = played / elapsedSeconds;
+        System.out.println(String.format("%s: %.1f fps (video has %.1f fps): 1x %s, 2x %s; %d frames decoded again"
+                + " (cache of %d blocks)", name, fps, mediaInfo.videoFrameRate,
+                fps >= mediaInfo.videoFrameRate ? "sustained" : "too slow",
+                fps >= 2 * mediaInfo.videoFrameRate ? "sustained" : "too slow", info.framesDecodedAgain, info.nBlocks));
+    }
+
+    /**
+     * Requests the batch of frames before the seq num, in the order they are played (backwards).
+     */
+    private static ObjectReceiver request(FrameCache cache, long seqNum, boolean backward) {
+        ObjectReceiver receiver = new ObjectReceiver(BATCH_SIZE);
+        for (int i = 1; i <= BATCH_SIZE; i++) {
+            cache.send(new FrameRequest(seqNum - i, 1, false, backward, receiver));
+        }
+        return receiver;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2026 by agent (agent@local), all rights reserved
+ * Created on 18.10.2026
+ */
+package exmoplay.experiment;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import exmoplay.access.MediaAnalyzer;
+import exmoplay.access.MediaFrame;
+import exmoplay.access.MediaInfo;
+import exmoplay.access.XugglerMediaInputStream;
+
+/**
+ * Measures the time from seeking to a position to having read the first frame there, once with the decoders reopened
+ * on every seek and once with them flushed (only done for codecs where it is safe, e.g. flv; others are reopened in
+ * both runs, see {@link XugglerMediaInputStream#setFlushDecoders(boolean)}). Pass videos of different containers and
+ * codecs (e.g. flv, mp4/h264, avi/mpeg4, mpg/mpeg2) to compare them.
+ *
+ * Usage: SeekLatencyBenchmark [seeks per video] video...
+ */
+public class SeekLatencyBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: SeekLatencyBenchmark [seeks per video] video...");
+            return;
+        }
+        int nSeeks = Integer.parseInt(args[0]);
+        for (int i = 1; i < args.length; i++) {
+            File file = new File(args[i]);
+            MediaInfo mediaInfo = MediaAnalyzer.analyze(file);
+            run(file, mediaInfo, false, nSeeks);
+            run(file, mediaInfo, true, nSeeks);
+        }
+    }
+
+    private static void run(File file, MediaInfo mediaInfo, boolean flush, int nSeeks) throws Exception {
+        XugglerMediaInputStream is = new XugglerMediaInputStream(file, mediaInfo);
+        is.setFlushDecoders(flush);
+        MediaFrame frame = is.createFrame();
+        long durationMillis = is.getDuration() / 1000L;
+
+        // same positions for both runs
+        Random random = new Random(13);
+        long[] latencies = new long[nSeeks];
+        for (int i = 0; i < nSeeks; i++) {
+            long position = (long) (random.nextDouble() * durationMillis * 0.95);
+            long start = System.nanoTime();
+            // always a real seek (setPosition could decode forward instead)
+            is.seekTo(position);
+            is.readFrame(frame);
+            latencies[i] = System.nanoTime() - start;
+        }
+        long seeks = is.getSeeks();
+        frame.delete();
+        is.close();
+
+        Arrays.sort(latencies);
+        long sum = 0;
+        for (long l : latencies) {
+            sum += l;
+        }
+        System.out.println(file.getName() + " (" + is.getVideoFormat().getEncoding() + "), "
+                + (flush ? "flushing" : "reopening") + " decoders: seeks: " + seeks + "; average "
+                + sum / nSeeks / 1000000.0 + "ms; median " + latencies[nSeeks / 2] / 1000000.0 + "ms; max "
+                + latencies[nSeeks - 1] / 1000000.0 + "ms");
+    }
+}